@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Seeded inputs, so every run of a benchmark sees the same numbers.
+ */
+final class Data {
+
+    private Data() {}
+
+    static double[] random(int length, long seed) {
+        Random random = new Random(seed);
+        double[] v = new double[length];
+        for (int i = 0; i < length; i++) {
+            v[i] = random.nextDouble() * 2 - 1;
+        }
+        return v;
+    }
+
+    static double[][] random(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        double[][] m = new double[rows][cols];
+        for (double[] row : m) {
+            for (int j = 0; j < cols; j++) {
+                row[j] = random.nextDouble() * 2 - 1;
+            }
+        }
+        return m;
+    }
+
+    static double[][] constant(int rows, int cols, double value) {
+        double[][] m = new double[rows][cols];
+        for (double[] row : m) {
+            java.util.Arrays.fill(row, value);
+        }
+        return m;
+    }
+
+    // "rows x cols" as written in a @Param
+    static int[] shape(String shape) {
+        String[] parts = shape.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+}
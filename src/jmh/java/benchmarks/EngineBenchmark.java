@@ -0,0 +1,124 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.ExecutionMode;
+import spl.lae.LinearAlgebraEngine;
+import spl.lae.SchedulerType;
+
+/**
+ * LinearAlgebraEngine.run on synthetic trees, planning, loading and readback included.
+ *
+ * chain: A1 * A2 * A3 * A4, all n x n.
+ * sum:   -(A1 + A2) + (A3 + A4)^T, the element-wise operators.
+ * mixed: (A1 * A2) + (A3 * A4)^T, two independent products that PARALLEL_DAG can overlap.
+ * product: A1 * A2, for comparing strassenThreshold at the thread counts the engine runs with, e.g.
+ *   -p tree=product -p n=2048 -p threads=1,4,8 -p strassenThreshold=0,1024
+ *
+ * run consumes the tree, so a fresh one is built before every invocation (not measured).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dlae.kernels=vector"})
+public class EngineBenchmark {
+
+    @Param({"64", "256"})
+    int n;
+
+    @Param({"1", "4"})
+    int threads;
+
+    @Param({"chain", "sum", "mixed"})
+    String tree;
+
+    @Param({"TIRED"})
+    String scheduler;
+
+    @Param({"SEQUENTIAL"})
+    String mode;
+
+    @Param({"0"})
+    int strassenThreshold;
+
+    private LinearAlgebraEngine engine;
+    private double[][][] operands;
+    private ComputationNode root;
+
+    @Setup(Level.Trial)
+    public void setUpEngine() {
+        engine = new LinearAlgebraEngine(SchedulerType.valueOf(scheduler).create(threads), ExecutionMode.valueOf(mode));
+        engine.setStrassenThreshold(strassenThreshold);
+        operands = new double[4][][];
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = Data.random(n, n, 10 + i);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void buildTree() {
+        root = build(tree);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public ComputationNode run() {
+        return engine.run(root);
+    }
+
+    private ComputationNode build(String shape) {
+        switch (shape) {
+            case "chain":
+                return node(ComputationNodeType.MULTIPLY, leaf(0), leaf(1), leaf(2), leaf(3));
+            case "sum":
+                return node(ComputationNodeType.ADD,
+                        node(ComputationNodeType.NEGATE, node(ComputationNodeType.ADD, leaf(0), leaf(1))),
+                        node(ComputationNodeType.TRANSPOSE, node(ComputationNodeType.ADD, leaf(2), leaf(3))));
+            case "product":
+                return node(ComputationNodeType.MULTIPLY, leaf(0), leaf(1));
+            case "mixed":
+                return node(ComputationNodeType.ADD,
+                        node(ComputationNodeType.MULTIPLY, leaf(0), leaf(1)),
+                        node(ComputationNodeType.TRANSPOSE, node(ComputationNodeType.MULTIPLY, leaf(2), leaf(3))));
+            default:
+                throw new IllegalArgumentException("unknown tree " + shape);
+        }
+    }
+
+    // the engine may adopt or overwrite leaf storage, every tree gets its own copies
+    private ComputationNode leaf(int i) {
+        double[][] copy = new double[n][];
+        for (int r = 0; r < n; r++) {
+            copy[r] = operands[i][r].clone();
+        }
+        return new ComputationNode(copy);
+    }
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new ArrayList<>(List.of(children)));
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.KernelBackend;
+import memory.Kernels;
+
+/**
+ * Scalar against Vector API kernels on raw arrays, without SharedVector locking.
+ * The fork enables the incubator module so both backends are available.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark {
+
+    @Param({"scalar", "vector"})
+    String backend;
+
+    @Param({"64", "256"})
+    int n;
+
+    private KernelBackend kernels;
+    private double[] x;
+    private double[] y;
+    private double[][] a;
+    private double[][] b;
+    private double[][] bColumns;
+    private double[][] c;
+    private int[] offsets;
+
+    @Setup
+    public void setUp() {
+        kernels = backend.equals("scalar") ? Kernels.scalar() : Kernels.vectorApi();
+        if (kernels == null) {
+            throw new IllegalStateException("jdk.incubator.vector is not enabled");
+        }
+        x = Data.random(n * n, 1);
+        y = Data.random(n * n, 2);
+        a = Data.random(n, n, 3);
+        b = Data.random(n, n, 4);
+        bColumns = Data.random(n, n, 5);
+        c = new double[n][n];
+        offsets = new int[n];
+    }
+
+    @Benchmark
+    public double dot() {
+        return kernels.dot(x, 0, y, 0, x.length);
+    }
+
+    @Benchmark
+    public double[][] gemmRowMajor() {
+        kernels.multiplyRowMajor(a, offsets, b, offsets, c, offsets, n, n);
+        return c;
+    }
+
+    @Benchmark
+    public double[][] gemmColumnMajor() {
+        kernels.multiplyColumnMajor(a, offsets, bColumns, offsets, c, offsets, n, n);
+        return c;
+    }
+}
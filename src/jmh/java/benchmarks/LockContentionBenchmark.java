@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.LockMode;
+import memory.SharedVector;
+import memory.VectorOrientation;
+
+/**
+ * Read-heavy contention on the SharedVector lock modes.
+ * Every thread runs dot products on random pairs of a small set of shared vectors, and one
+ * operation in WRITE_EVERY is an add followed by a negate, so writers are rare but present.
+ * Contention only shows with more threads than the machine has cores idle, vary it with -t:
+ *
+ *   java -jar target/benchmarks.jar LockContentionBenchmark -t 16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dlae.kernels=vector"})
+@Threads(8)
+public class LockContentionBenchmark {
+
+    private static final int VECTORS = 16;
+    private static final int LENGTH = 64;
+    private static final int WRITE_EVERY = 1000;
+
+    @Param({"REENTRANT", "OPTIMISTIC"})
+    String lockMode;
+
+    private SharedVector[] vectors;
+
+    @State(Scope.Thread)
+    public static class Counter {
+        long done;
+    }
+
+    @Setup
+    public void setUp() {
+        LockMode previous = SharedVector.getDefaultLockMode();
+        SharedVector.setDefaultLockMode(LockMode.valueOf(lockMode));
+        try {
+            vectors = new SharedVector[VECTORS];
+            for (int i = 0; i < VECTORS; i++) {
+                vectors[i] = new SharedVector(Data.random(LENGTH, 20 + i), VectorOrientation.ROW_MAJOR);
+            }
+        } finally {
+            SharedVector.setDefaultLockMode(previous);
+        }
+    }
+
+    @Benchmark
+    public double mixed(Counter counter) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SharedVector a = vectors[random.nextInt(VECTORS)];
+        SharedVector b = vectors[random.nextInt(VECTORS)];
+        if (++counter.done % WRITE_EVERY == 0 && a != b) {
+            // add then negate keeps the values bounded over millions of writes
+            a.add(b);
+            b.negate();
+            return 0;
+        }
+        return a.dot(b);
+    }
+}
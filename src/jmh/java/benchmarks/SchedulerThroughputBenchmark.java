@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import scheduling.TaskScheduler;
+import spl.lae.SchedulerType;
+
+/**
+ * Many-small-task throughput of TiredExecutor against WorkStealingExecutor, reported per task.
+ * Every invocation submits TASKS tasks of work multiply-adds each through submitAll, the shape of
+ * the engine's per-row tasks on small matrices. Only meaningful with at least threads idle cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dlae.kernels=vector"})
+public class SchedulerThroughputBenchmark {
+
+    private static final int TASKS = 10_000;
+
+    @Param({"TIRED", "WORK_STEALING"})
+    String scheduler;
+
+    @Param({"2", "4", "8"})
+    int threads;
+
+    @Param({"16", "256", "4096"})
+    int work;
+
+    private TaskScheduler executor;
+    private List<Runnable> tasks;
+
+    @Setup
+    public void setUp() {
+        executor = SchedulerType.valueOf(scheduler).create(threads);
+        tasks = new ArrayList<>(TASKS);
+        for (int t = 0; t < TASKS; t++) {
+            tasks.add(() -> Blackhole.consumeCPU(work));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void submitAll() {
+        executor.submitAll(tasks);
+    }
+}
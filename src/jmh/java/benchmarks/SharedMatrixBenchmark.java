@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.SharedMatrix;
+
+/**
+ * Copying between double[][] and engine storage, the load and readback stages of every node.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dlae.kernels=vector"})
+public class SharedMatrixBenchmark {
+
+    @Param({"16x16", "256x256", "1024x64", "64x1024"})
+    String shape;
+
+    private double[][] source;
+    private SharedMatrix matrix;
+
+    @Setup
+    public void setUp() {
+        int[] dims = Data.shape(shape);
+        source = Data.random(dims[0], dims[1], 5);
+        matrix = new SharedMatrix(source);
+    }
+
+    @Benchmark
+    public SharedMatrix loadRowMajor() {
+        matrix.loadRowMajor(source);
+        return matrix;
+    }
+
+    @Benchmark
+    public double[][] readRowMajor() {
+        return matrix.readRowMajor();
+    }
+}
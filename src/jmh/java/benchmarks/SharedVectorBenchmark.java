@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.SharedMatrix;
+import memory.SharedVector;
+import memory.VectorOrientation;
+
+/**
+ * Single-threaded cost of the SharedVector kernels, locking included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dlae.kernels=vector"})
+public class SharedVectorBenchmark {
+
+    @Param({"64", "1024", "16384"})
+    int length;
+
+    private SharedVector row;
+    private SharedVector other;
+    private SharedVector column;
+    private SharedVector product; // target of vecMatMul, keeps its length because the matrix is square
+    private SharedMatrix matrix;
+
+    @Setup
+    public void setUp() {
+        row = new SharedVector(Data.random(length, 1), VectorOrientation.ROW_MAJOR);
+        other = new SharedVector(Data.random(length, 2), VectorOrientation.ROW_MAJOR);
+        column = new SharedVector(Data.random(length, 3), VectorOrientation.COLUMN_MAJOR);
+        // vecMatMul is O(n^2), cap its side so the largest case still finishes an iteration
+        int side = Math.min(length, 1024);
+        product = new SharedVector(Data.random(side, 4), VectorOrientation.ROW_MAJOR);
+        // entries of 1/side keep the repeatedly multiplied vector from overflowing
+        matrix = new SharedMatrix(Data.constant(side, side, 1.0 / side));
+    }
+
+    @Benchmark
+    public double dot() {
+        return row.dot(column);
+    }
+
+    @Benchmark
+    public SharedVector add() {
+        row.add(other);
+        return row;
+    }
+
+    @Benchmark
+    public SharedVector vecMatMul() {
+        product.vecMatMul(matrix);
+        return product;
+    }
+}
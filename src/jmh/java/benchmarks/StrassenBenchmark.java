@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.StrassenWinograd;
+
+/**
+ * Crossover of Strassen-Winograd against the blocked kernel, single-threaded.
+ * threshold 0 is the blocked kernel alone; otherwise the recursion stops at the first level whose
+ * sides drop below threshold, so n = 2048 with threshold 1024 is two levels and with 2048 one.
+ * Needs -Xmx of a few GB for n = 4096.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dlae.kernels=vector", "-Xmx4g"})
+public class StrassenBenchmark {
+
+    @Param({"1024", "2048", "4096"})
+    int n;
+
+    @Param({"0", "512", "1024", "2048"})
+    int threshold;
+
+    private double[] a;
+    private double[] b;
+
+    @Setup
+    public void setUp() {
+        a = Data.random(n * n, 1);
+        b = Data.random(n * n, 2);
+    }
+
+    @Benchmark
+    public double[] multiply() {
+        return StrassenWinograd.multiply(a, b, n, n, n, threshold);
+    }
+}
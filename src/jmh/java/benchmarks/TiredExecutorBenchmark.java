@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import scheduling.TiredExecutor;
+
+/**
+ * submitAll throughput of TiredExecutor, reported per task.
+ * work is the number of multiply-adds per task: 16 measures dispatch overhead,
+ * 65536 is closer to an engine row task on a large matrix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dlae.kernels=vector"})
+public class TiredExecutorBenchmark {
+
+    private static final int TASKS = 1000;
+
+    @Param({"1", "2", "4"})
+    int threads;
+
+    @Param({"16", "65536"})
+    int work;
+
+    private TiredExecutor executor;
+    private List<Runnable> tasks;
+
+    @Setup
+    public void setUp() {
+        executor = new TiredExecutor(threads);
+        tasks = new ArrayList<>(TASKS);
+        for (int t = 0; t < TASKS; t++) {
+            tasks.add(() -> Blackhole.consumeCPU(work));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void submitAll() {
+        executor.submitAll(tasks);
+    }
+}
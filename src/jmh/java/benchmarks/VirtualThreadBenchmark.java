@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import scheduling.TaskScheduler;
+import scheduling.VirtualThreadExecutor;
+import spl.lae.SchedulerType;
+
+/**
+ * When do virtual threads beat the fatigue pool? Reported per task.
+ * Every task burns WORK units of CPU and then waits blockMicros, standing in for a page fault on a
+ * mapped operand or an output flush. With no waiting both pools are bound by the CPU; as the wait
+ * grows, TiredExecutor keeps a worker parked per waiting task while virtual threads overlap the waits.
+ * Every parameter combination runs in its own fork, so the carrier pool is sized for it in setUp.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dlae.kernels=vector"})
+public class VirtualThreadBenchmark {
+
+    private static final int TASKS = 200;
+    private static final int WORK = 20_000;
+
+    @Param({"TIRED", "VIRTUAL"})
+    String scheduler;
+
+    @Param({"4"})
+    int threads;
+
+    @Param({"0", "50", "200", "1000"})
+    int blockMicros;
+
+    private TaskScheduler executor;
+    private List<Runnable> tasks;
+
+    @Setup
+    public void setUp() {
+        // the carrier pool is created with the first virtual thread, size it before that
+        System.setProperty(VirtualThreadExecutor.CARRIER_PARALLELISM_PROPERTY, String.valueOf(threads));
+        executor = SchedulerType.valueOf(scheduler).create(threads);
+        tasks = new ArrayList<>(TASKS);
+        for (int t = 0; t < TASKS; t++) {
+            tasks.add(() -> {
+                Blackhole.consumeCPU(WORK);
+                if (blockMicros > 0) {
+                    LockSupport.parkNanos(blockMicros * 1_000L);
+                }
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void submitAll() {
+        executor.submitAll(tasks);
+    }
+}
@@ -0,0 +1,192 @@
+package memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Raw binary matrix files, so operands produced by other services skip JSON entirely.
+ *
+ * Layout, all little-endian:
+ *   0  magic "LAEM"
+ *   4  int version (1)
+ *   8  int rows
+ *   12 int cols
+ *   16 int dtype (1 = float64, 2 = float32)
+ *   20 int orientation (0 = row-major, 1 = column-major)
+ *   24 rows * cols elements, vector after vector in the given orientation
+ *
+ * Files are read with bulk FileChannel reads through one direct buffer into the slabs of a SharedMatrix.
+ * The engine computes on heap double[] slabs, so one copy out of the page cache is unavoidable; mapping
+ * the file would not save it, it only moves where the copy happens.
+ */
+public final class BinaryMatrixFile {
+
+    public static final String EXTENSION = ".mat";
+
+    public static final int DTYPE_FLOAT64 = 1;
+    public static final int DTYPE_FLOAT32 = 2;
+
+    private static final int MAGIC = 0x4D45414C; // "LAEM" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    // read and write buffer, a multiple of both element sizes
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private BinaryMatrixFile() {}
+
+    public static SharedMatrix read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(path + ": too short for a matrix header");
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            fill(channel, header, path);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + ": not a binary matrix file (bad magic)");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(path + ": unsupported version " + version);
+            }
+            int rows = header.getInt();
+            int cols = header.getInt();
+            int dtype = header.getInt();
+            int orientationCode = header.getInt();
+            if (rows < 0 || cols < 0) {
+                throw new IOException(path + ": negative dimensions " + rows + " x " + cols);
+            }
+            int elementBytes;
+            if (dtype == DTYPE_FLOAT64) {
+                elementBytes = Double.BYTES;
+            } else if (dtype == DTYPE_FLOAT32) {
+                elementBytes = Float.BYTES;
+            } else {
+                throw new IOException(path + ": unknown dtype " + dtype);
+            }
+            if (orientationCode != 0 && orientationCode != 1) {
+                throw new IOException(path + ": unknown orientation " + orientationCode);
+            }
+            long expected = HEADER_BYTES + (long) rows * cols * elementBytes;
+            if (channel.size() != expected) {
+                throw new IOException(path + ": expected " + expected + " bytes for " + rows + " x " + cols + " but file has " + channel.size());
+            }
+
+            VectorOrientation orientation = orientationCode == 0 ? VectorOrientation.ROW_MAJOR : VectorOrientation.COLUMN_MAJOR;
+            int count = orientation == VectorOrientation.ROW_MAJOR ? rows : cols;
+            int stride = orientation == VectorOrientation.ROW_MAJOR ? cols : rows;
+            SharedVector[] vectors = SharedMatrix.allocate(count, stride, orientation);
+
+            // stream the data region through one buffer into the (not yet published) vectors
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long left = expected - HEADER_BYTES;
+            buffer.limit(0);
+            for (SharedVector v : vectors) {
+                double[] storage = v.storage();
+                int base = v.offset();
+                int filled = 0;
+                while (filled < stride) {
+                    if (buffer.remaining() < elementBytes) {
+                        buffer.compact();
+                        buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + left));
+                        left -= buffer.remaining();
+                        fill(channel, buffer, path);
+                        buffer.flip();
+                    }
+                    int n;
+                    if (dtype == DTYPE_FLOAT64) {
+                        DoubleBuffer doubles = buffer.asDoubleBuffer();
+                        n = Math.min(stride - filled, doubles.remaining());
+                        doubles.get(storage, base + filled, n);
+                    } else {
+                        FloatBuffer floats = buffer.asFloatBuffer();
+                        n = Math.min(stride - filled, floats.remaining());
+                        for (int i = 0; i < n; i++) {
+                            storage[base + filled + i] = floats.get();
+                        }
+                    }
+                    buffer.position(buffer.position() + n * elementBytes);
+                    filled += n;
+                }
+            }
+
+            SharedMatrix matrix = new SharedMatrix();
+            matrix.setVectors(vectors);
+            return matrix;
+        }
+    }
+
+    /**
+     * Writes matrix as float64 in its current orientation, so a column-major matrix is not transposed first.
+     */
+    public static void write(SharedMatrix matrix, Path path) throws IOException {
+        SharedVector[] vectors = matrix.vectorsSnapshot();
+        for (SharedVector v : vectors) {
+            v.readLock();
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            VectorOrientation orientation = vectors.length == 0 ? VectorOrientation.ROW_MAJOR : vectors[0].orientationUnlocked();
+            int stride = vectors.length == 0 ? 0 : vectors[0].lengthUnlocked();
+            for (SharedVector v : vectors) {
+                if (v.lengthUnlocked() != stride) {
+                    throw new IOException("matrix vectors have different lengths");
+                }
+            }
+            int rows = orientation == VectorOrientation.ROW_MAJOR ? vectors.length : stride;
+            int cols = orientation == VectorOrientation.ROW_MAJOR ? stride : vectors.length;
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putInt(DTYPE_FLOAT64)
+                    .putInt(orientation == VectorOrientation.ROW_MAJOR ? 0 : 1);
+            for (SharedVector v : vectors) {
+                double[] storage = v.storage();
+                int base = v.offset();
+                int written = 0;
+                while (written < stride) {
+                    if (buffer.remaining() < Double.BYTES) {
+                        drain(channel, buffer);
+                    }
+                    // bulk put through a double view of the free part of the buffer
+                    DoubleBuffer view = buffer.asDoubleBuffer();
+                    int n = Math.min(stride - written, view.remaining());
+                    view.put(storage, base + written, n);
+                    buffer.position(buffer.position() + n * Double.BYTES);
+                    written += n;
+                }
+            }
+            drain(channel, buffer);
+        } finally {
+            for (SharedVector v : vectors) {
+                v.readUnlock();
+            }
+        }
+    }
+
+    public static void write(double[][] matrix, Path path) throws IOException {
+        write(new SharedMatrix(matrix), path);
+    }
+
+    // reads until buffer is full, the size check up front makes running out of file an error
+    private static void fill(FileChannel channel, ByteBuffer buffer, Path path) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException(path + ": unexpected end of file");
+            }
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,419 @@
+package memory;
+
+import scheduling.CancellationToken;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sparse matrix in compressed sparse row (CSR) form.
+ * Row i owns the entries rowPtr[i] .. rowPtr[i + 1] - 1 of colIdx/values, columns sorted.
+ * The CSR form of A is also the CSC (compressed column) form of A transposed, which is what
+ * transpose() builds.
+ *
+ * Kernels that produce a sparse result work on a block of rows and return it as its own
+ * CsrMatrix, so several blocks can be computed in parallel and joined with concatRows.
+ * Kernels that touch a dense SharedMatrix lock its vectors once per call, like SharedMatrix does.
+ * The multiply kernels check for cancellation every CANCEL_CHECK_ROWS rows.
+ */
+public final class CsrMatrix {
+
+    // at most 5% non-zeros: below this CSR is both smaller and faster than dense rows
+    public static final double DEFAULT_MAX_DENSITY = 0.05;
+    // smaller operands are never worth converting, 64 x 64
+    public static final int MIN_SPARSE_ELEMENTS = 4096;
+
+    private static final int CANCEL_CHECK_ROWS = 64;
+
+    private final int rows;
+    private final int cols;
+    private final int[] rowPtr;
+    private final int[] colIdx;
+    private final double[] values;
+
+    CsrMatrix(int rows, int cols, int[] rowPtr, int[] colIdx, double[] values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    public static CsrMatrix fromDense(double[][] matrix) {
+        CsrMatrix sparse = fromDenseIfSparse(matrix, 1.0);
+        if (sparse == null) {
+            throw new IllegalArgumentException("matrix is not rectangular");
+        }
+        return sparse;
+    }
+
+    /**
+     * Converts matrix to CSR if at most maxDensity of its elements are non-zero, otherwise returns null.
+     * Counting stops as soon as the limit is passed, so dense matrices are rejected after a short scan.
+     * Ragged input also returns null and is left for the dense path to report.
+     */
+    public static CsrMatrix fromDenseIfSparse(double[][] matrix, double maxDensity) {
+        int rows = matrix.length;
+        if (rows == 0 || matrix[0] == null) {
+            return null;
+        }
+        int cols = matrix[0].length;
+        long limit = (long) Math.floor(maxDensity * ((long) rows * cols));
+        long nnz = 0;
+        for (double[] row : matrix) {
+            if (row == null || row.length != cols) {
+                return null;
+            }
+            for (double v : row) {
+                if (v != 0 && ++nnz > limit) {
+                    return null;
+                }
+            }
+        }
+
+        int[] rowPtr = new int[rows + 1];
+        int[] colIdx = new int[(int) nnz];
+        double[] values = new double[(int) nnz];
+        int k = 0;
+        for (int i = 0; i < rows; i++) {
+            double[] row = matrix[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j] != 0) {
+                    colIdx[k] = j;
+                    values[k] = row[j];
+                    k++;
+                }
+            }
+            rowPtr[i + 1] = k;
+        }
+        return new CsrMatrix(rows, cols, rowPtr, colIdx, values);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int nnz() {
+        return rowPtr[rows];
+    }
+
+    public double density() {
+        long total = (long) rows * cols;
+        return total == 0 ? 0.0 : (double) nnz() / total;
+    }
+
+    public double[][] toDense() {
+        double[][] out = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                out[i][colIdx[k]] = values[k];
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Dense row-major copy in a fresh SharedMatrix.
+     */
+    public SharedMatrix toSharedMatrix() {
+        SharedMatrix out = new SharedMatrix(rows, cols);
+        // not published yet, so the vectors are filled without locking
+        SharedVector[] vecs = out.vectorsSnapshot();
+        for (int i = 0; i < rows; i++) {
+            double[] storage = vecs[i].storage();
+            int base = vecs[i].offset();
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                storage[base + colIdx[k]] = values[k];
+            }
+        }
+        return out;
+    }
+
+    public CsrMatrix negate() {
+        double[] negated = new double[values.length];
+        for (int k = 0; k < negated.length; k++) {
+            negated[k] = -values[k];
+        }
+        return new CsrMatrix(rows, cols, rowPtr, colIdx, negated);
+    }
+
+    /**
+     * Builds the CSR form of the transpose in O(nnz) with a counting sort over the columns.
+     */
+    public CsrMatrix transpose() {
+        int nnz = nnz();
+        int[] tPtr = new int[cols + 1];
+        for (int k = 0; k < nnz; k++) {
+            tPtr[colIdx[k] + 1]++;
+        }
+        for (int j = 0; j < cols; j++) {
+            tPtr[j + 1] += tPtr[j];
+        }
+        int[] next = Arrays.copyOf(tPtr, cols);
+        int[] tIdx = new int[nnz];
+        double[] tVal = new double[nnz];
+        // rows are visited in order, so every transposed row comes out with sorted columns
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                int dst = next[colIdx[k]]++;
+                tIdx[dst] = i;
+                tVal[dst] = values[k];
+            }
+        }
+        return new CsrMatrix(cols, rows, tPtr, tIdx, tVal);
+    }
+
+    /**
+     * Rows [from, to) of this + other, as a block of to - from rows. Exact zeros are dropped.
+     */
+    public CsrMatrix addRows(CsrMatrix other, int from, int to) {
+        checkSameShape(other);
+        int capacity = (rowPtr[to] - rowPtr[from]) + (other.rowPtr[to] - other.rowPtr[from]);
+        int[] ptr = new int[to - from + 1];
+        int[] idx = new int[capacity];
+        double[] val = new double[capacity];
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            int a = rowPtr[i], aEnd = rowPtr[i + 1];
+            int b = other.rowPtr[i], bEnd = other.rowPtr[i + 1];
+            // both rows have sorted columns, merge them
+            while (a < aEnd || b < bEnd) {
+                int ca = a < aEnd ? colIdx[a] : Integer.MAX_VALUE;
+                int cb = b < bEnd ? other.colIdx[b] : Integer.MAX_VALUE;
+                double v;
+                int c;
+                if (ca == cb) {
+                    c = ca;
+                    v = values[a++] + other.values[b++];
+                } else if (ca < cb) {
+                    c = ca;
+                    v = values[a++];
+                } else {
+                    c = cb;
+                    v = other.values[b++];
+                }
+                if (v != 0) {
+                    idx[n] = c;
+                    val[n] = v;
+                    n++;
+                }
+            }
+            ptr[i - from + 1] = n;
+        }
+        return new CsrMatrix(to - from, cols, ptr, Arrays.copyOf(idx, n), Arrays.copyOf(val, n));
+    }
+
+    /**
+     * Rows [from, to) of this x right (Gustavson's row-by-row algorithm), as a block of to - from rows.
+     */
+    public CsrMatrix multiplyRows(CsrMatrix right, int from, int to) {
+        checkInner(right.rows);
+        int outCols = right.cols;
+        double[] acc = new double[outCols];
+        int[] mark = new int[outCols];
+        Arrays.fill(mark, -1);
+        int[] touched = new int[outCols];
+
+        int[] ptr = new int[to - from + 1];
+        int[] idx = new int[Math.max(16, rowPtr[to] - rowPtr[from])];
+        double[] val = new double[idx.length];
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            if ((i - from) % CANCEL_CHECK_ROWS == 0) {
+                CancellationToken.checkCurrent();
+            }
+            int count = 0;
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                int p = colIdx[k];
+                double a = values[k];
+                for (int q = right.rowPtr[p]; q < right.rowPtr[p + 1]; q++) {
+                    int j = right.colIdx[q];
+                    if (mark[j] != i) {
+                        mark[j] = i;
+                        acc[j] = 0;
+                        touched[count++] = j;
+                    }
+                    acc[j] += a * right.values[q];
+                }
+            }
+            Arrays.sort(touched, 0, count);
+            if (n + count > idx.length) {
+                int grown = Math.max(idx.length * 2, n + count);
+                idx = Arrays.copyOf(idx, grown);
+                val = Arrays.copyOf(val, grown);
+            }
+            for (int t = 0; t < count; t++) {
+                int j = touched[t];
+                if (acc[j] != 0) {
+                    idx[n] = j;
+                    val[n] = acc[j];
+                    n++;
+                }
+            }
+            ptr[i - from + 1] = n;
+        }
+        return new CsrMatrix(to - from, outCols, ptr, Arrays.copyOf(idx, n), Arrays.copyOf(val, n));
+    }
+
+    /**
+     * Stacks row blocks (as returned by addRows/multiplyRows) back into one matrix.
+     */
+    public static CsrMatrix concatRows(CsrMatrix[] blocks, int cols) {
+        int rows = 0;
+        int nnz = 0;
+        for (CsrMatrix b : blocks) {
+            if (b.cols != cols) {
+                throw new IllegalArgumentException("blocks have different widths");
+            }
+            rows += b.rows;
+            nnz += b.nnz();
+        }
+        int[] ptr = new int[rows + 1];
+        int[] idx = new int[nnz];
+        double[] val = new double[nnz];
+        int r = 0;
+        int n = 0;
+        for (CsrMatrix b : blocks) {
+            int bnnz = b.nnz();
+            System.arraycopy(b.colIdx, 0, idx, n, bnnz);
+            System.arraycopy(b.values, 0, val, n, bnnz);
+            for (int i = 0; i < b.rows; i++) {
+                ptr[r + i + 1] = n + b.rowPtr[i + 1];
+            }
+            r += b.rows;
+            n += bnnz;
+        }
+        return new CsrMatrix(rows, cols, ptr, idx, val);
+    }
+
+    /**
+     * dense rows [from, to) += the same rows of this. dense must be row-major with the same shape.
+     */
+    public void addRowsInto(SharedMatrix dense, int from, int to) {
+        if (dense.getOrientation() != VectorOrientation.ROW_MAJOR || dense.rows() != rows || dense.cols() != cols) {
+            throw new IllegalArgumentException("Addition: dimension mismatch (" + rows + " x " + cols + ") + ("
+                    + dense.rows() + " x " + dense.cols() + ")");
+        }
+        SharedVector[] vecs = dense.vectorsSnapshot();
+        for (int i = from; i < to; i++) {
+            SharedVector v = vecs[i];
+            v.writeLock();
+            try {
+                double[] storage = v.storage();
+                int base = v.offset();
+                for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                    storage[base + colIdx[k]] += values[k];
+                }
+            } finally {
+                v.writeUnlock();
+            }
+        }
+    }
+
+    /**
+     * out rows [from, to) = the same rows of this x right, for a dense row-major right.
+     * out must be a zeroed row-major rows x right.cols() matrix.
+     */
+    public void multiplyRowsInto(SharedMatrix right, SharedMatrix out, int from, int to) {
+        if (right.getOrientation() != VectorOrientation.ROW_MAJOR) {
+            throw new IllegalArgumentException("sparse x dense expects a row-major right operand");
+        }
+        checkInner(right.rows());
+        SharedVector[] b = right.vectorsSnapshot();
+        SharedVector[] c = out.vectorsSnapshot();
+        for (SharedVector v : b) {
+            v.readLock();
+        }
+        try {
+            for (int i = from; i < to; i++) {
+                if ((i - from) % CANCEL_CHECK_ROWS == 0) {
+                    CancellationToken.checkCurrent();
+                }
+                SharedVector ci = c[i];
+                ci.writeLock();
+                try {
+                    double[] cs = ci.storage();
+                    int co = ci.offset();
+                    int width = ci.lengthUnlocked();
+                    // one axpy per non-zero: out row i += a(i, p) * right row p
+                    for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                        double a = values[k];
+                        SharedVector bp = b[colIdx[k]];
+                        double[] bs = bp.storage();
+                        int bo = bp.offset();
+                        for (int j = 0; j < width; j++) {
+                            cs[co + j] += a * bs[bo + j];
+                        }
+                    }
+                } finally {
+                    ci.writeUnlock();
+                }
+            }
+        } finally {
+            for (SharedVector v : b) {
+                v.readUnlock();
+            }
+        }
+    }
+
+    /**
+     * out rows [from, to) = the same rows of left x this, for a dense row-major left.
+     * out must be a zeroed row-major left.rows() x cols matrix.
+     */
+    public void multiplyDenseRowsInto(SharedMatrix left, SharedMatrix out, int from, int to) {
+        if (left.getOrientation() != VectorOrientation.ROW_MAJOR) {
+            throw new IllegalArgumentException("dense x sparse expects a row-major left operand");
+        }
+        if (left.cols() != rows) {
+            throw new IllegalArgumentException("Multiplication: dimension mismatch (" + left.rows() + " x " + left.cols()
+                    + ") * (" + rows + " x " + cols + ")");
+        }
+        SharedVector[] a = left.vectorsSnapshot();
+        SharedVector[] c = out.vectorsSnapshot();
+        for (int i = from; i < to; i++) {
+            if ((i - from) % CANCEL_CHECK_ROWS == 0) {
+                CancellationToken.checkCurrent();
+            }
+            SharedVector ai = a[i];
+            SharedVector ci = c[i];
+            ai.readLock();
+            ci.writeLock();
+            try {
+                double[] as = ai.storage();
+                int ao = ai.offset();
+                double[] cs = ci.storage();
+                int co = ci.offset();
+                // out row i += left(i, p) * row p of this, skipping zeros of left as well
+                for (int p = 0; p < rows; p++) {
+                    double x = as[ao + p];
+                    if (x == 0) {
+                        continue;
+                    }
+                    for (int k = rowPtr[p]; k < rowPtr[p + 1]; k++) {
+                        cs[co + colIdx[k]] += x * values[k];
+                    }
+                }
+            } finally {
+                ci.writeUnlock();
+                ai.readUnlock();
+            }
+        }
+    }
+
+    private void checkSameShape(CsrMatrix other) {
+        if (other.rows != rows || other.cols != cols) {
+            throw new IllegalArgumentException("Addition: dimension mismatch (" + rows + " x " + cols + ") + ("
+                    + other.rows + " x " + other.cols + ")");
+        }
+    }
+
+    private void checkInner(int rightRows) {
+        if (cols != rightRows) {
+            throw new IllegalArgumentException("Multiplication: dimension mismatch, left has " + cols
+                    + " columns but right has " + rightRows + " rows");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package memory;
+
+import scheduling.CancellationToken;
+
+/**
+ * Cache-blocked matrix multiply kernels working directly on the backing arrays of SharedVectors.
+ * Every operand is passed as one array + offset per vector, so the kernels work the same whether
+ * the vectors share a slab or own their arrays. Callers are responsible for locking.
+ * All kernels accumulate into c, which must be zeroed by the caller for a plain product.
+ * Every C element adds its products one at a time in order of p, whichever layout, row block or tile it
+ * falls in, so a product rounds the same at any thread count and like the naive dot product per element.
+ * Every KC block starts with a cancellation check, so a cancelled job leaves a kernel within one block.
+ * These are the scalar kernels; callers go through Kernels, which may pick VectorApiKernels instead.
+ */
+final class GemmKernel {
+
+    // depth of a block: a KC x NC panel of the right operand (256KB) stays in L2
+    static final int KC = 128;
+    // width of a block: four output rows of NC doubles (8KB) stay in L1
+    static final int NC = 256;
+
+    private GemmKernel() {}
+
+    /**
+     * c[i] += a[i] x B where B is stored as rows (b[p] is row p of B).
+     * a has one entry per output row, inner is the length of each a row, cols the length of each B row.
+     */
+    static void multiplyRowMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                                 double[][] c, int[] cOff, int inner, int cols) {
+        int rows = a.length;
+        for (int pp = 0; pp < inner; pp += KC) {
+            CancellationToken.checkCurrent();
+            int pEnd = Math.min(inner, pp + KC);
+            for (int jj = 0; jj < cols; jj += NC) {
+                int jEnd = Math.min(cols, jj + NC);
+                int i = 0;
+                // register block: four output rows share every load of B[p][j]
+                for (; i + 3 < rows; i += 4) {
+                    double[] a0 = a[i], a1 = a[i + 1], a2 = a[i + 2], a3 = a[i + 3];
+                    int ao0 = aOff[i], ao1 = aOff[i + 1], ao2 = aOff[i + 2], ao3 = aOff[i + 3];
+                    double[] c0 = c[i], c1 = c[i + 1], c2 = c[i + 2], c3 = c[i + 3];
+                    int co0 = cOff[i], co1 = cOff[i + 1], co2 = cOff[i + 2], co3 = cOff[i + 3];
+                    for (int p = pp; p < pEnd; p++) {
+                        double x0 = a0[ao0 + p], x1 = a1[ao1 + p], x2 = a2[ao2 + p], x3 = a3[ao3 + p];
+                        double[] bp = b[p];
+                        int bo = bOff[p];
+                        for (int j = jj; j < jEnd; j++) {
+                            double y = bp[bo + j];
+                            c0[co0 + j] += x0 * y;
+                            c1[co1 + j] += x1 * y;
+                            c2[co2 + j] += x2 * y;
+                            c3[co3 + j] += x3 * y;
+                        }
+                    }
+                }
+                // leftover rows: unroll over p instead, so each C element is loaded and stored once per four B rows;
+                // still one product at a time, the same rounding as the register block
+                for (; i < rows; i++) {
+                    double[] ai = a[i];
+                    int ao = aOff[i];
+                    double[] ci = c[i];
+                    int co = cOff[i];
+                    int p = pp;
+                    for (; p + 3 < pEnd; p += 4) {
+                        double x0 = ai[ao + p], x1 = ai[ao + p + 1], x2 = ai[ao + p + 2], x3 = ai[ao + p + 3];
+                        double[] b0 = b[p], b1 = b[p + 1], b2 = b[p + 2], b3 = b[p + 3];
+                        int bo0 = bOff[p], bo1 = bOff[p + 1], bo2 = bOff[p + 2], bo3 = bOff[p + 3];
+                        for (int j = jj; j < jEnd; j++) {
+                            double s = ci[co + j];
+                            s += x0 * b0[bo0 + j];
+                            s += x1 * b1[bo1 + j];
+                            s += x2 * b2[bo2 + j];
+                            s += x3 * b3[bo3 + j];
+                            ci[co + j] = s;
+                        }
+                    }
+                    for (; p < pEnd; p++) {
+                        double x = ai[ao + p];
+                        double[] bp = b[p];
+                        int bo = bOff[p];
+                        for (int j = jj; j < jEnd; j++) {
+                            ci[co + j] += x * bp[bo + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * c[i] += a[i] x B where B is stored as columns (b[j] is column j of B),
+     * so every output element is a dot product of two contiguous vectors.
+     * The running sums start from C, not from zero per KC block, so the result matches multiplyRowMajor bit for bit.
+     */
+    static void multiplyColumnMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                                    double[][] c, int[] cOff, int inner, int cols) {
+        int rows = a.length;
+        for (int pp = 0; pp < inner; pp += KC) {
+            CancellationToken.checkCurrent();
+            int pEnd = Math.min(inner, pp + KC);
+            for (int jj = 0; jj < cols; jj += NC) {
+                int jEnd = Math.min(cols, jj + NC);
+                for (int i = 0; i < rows; i++) {
+                    double[] ai = a[i];
+                    int ao = aOff[i];
+                    double[] ci = c[i];
+                    int co = cOff[i];
+                    int j = jj;
+                    // register block: four output columns share every load of A[i][p]
+                    for (; j + 3 < jEnd; j += 4) {
+                        double[] b0 = b[j], b1 = b[j + 1], b2 = b[j + 2], b3 = b[j + 3];
+                        int bo0 = bOff[j], bo1 = bOff[j + 1], bo2 = bOff[j + 2], bo3 = bOff[j + 3];
+                        double s0 = ci[co + j], s1 = ci[co + j + 1], s2 = ci[co + j + 2], s3 = ci[co + j + 3];
+                        for (int p = pp; p < pEnd; p++) {
+                            double x = ai[ao + p];
+                            s0 += x * b0[bo0 + p];
+                            s1 += x * b1[bo1 + p];
+                            s2 += x * b2[bo2 + p];
+                            s3 += x * b3[bo3 + p];
+                        }
+                        ci[co + j] = s0;
+                        ci[co + j + 1] = s1;
+                        ci[co + j + 2] = s2;
+                        ci[co + j + 3] = s3;
+                    }
+                    // leftover columns
+                    for (; j < jEnd; j++) {
+                        double[] bj = b[j];
+                        int bo = bOff[j];
+                        double s = ci[co + j];
+                        for (int p = pp; p < pEnd; p++) {
+                            s += ai[ao + p] * bj[bo + p];
+                        }
+                        ci[co + j] = s;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package memory;
+
+/**
+ * Inner loops over the backing arrays of SharedVectors, one implementation per instruction set.
+ * Callers are responsible for locking and for bounds; every range is [off, off + n).
+ */
+public interface KernelBackend {
+
+    String name();
+
+    /** a . b */
+    double dot(double[] a, int aOff, double[] b, int bOff, int n);
+
+    /** a += b */
+    void add(double[] a, int aOff, double[] b, int bOff, int n);
+
+    /** a = -a */
+    void negate(double[] a, int aOff, int n);
+
+    /** c[i] += a[i] x B with B stored as rows, see GemmKernel.multiplyRowMajor. */
+    void multiplyRowMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                          double[][] c, int[] cOff, int inner, int cols);
+
+    /** c[i] += a[i] x B with B stored as columns, see GemmKernel.multiplyColumnMajor. */
+    void multiplyColumnMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                             double[][] c, int[] cOff, int inner, int cols);
+}
@@ -0,0 +1,93 @@
+package memory;
+
+import java.util.Locale;
+
+/**
+ * The kernel backend used by SharedVector and SharedMatrix, picked once when the class loads.
+ *
+ * The scalar kernels are the default. -Dlae.kernels=vector opts into the Vector API backend, which also
+ * needs the incubator module at run time (java --add-modules jdk.incubator.vector -Dlae.kernels=vector ...);
+ * without it, or when the CPU has no SIMD registers wider than one double, the scalar kernels are used.
+ * The SIMD kernels use fused multiply-add and split dot products across lanes, so their results differ
+ * from the scalar ones in the last bits: opting in is opting into different rounding, not only speed.
+ * Any other value of lae.kernels falls back to the scalar kernels with a warning on stderr, this class
+ * loads on the first matrix operation where an exception would surface as ExceptionInInitializerError.
+ */
+public final class Kernels {
+
+    public static final String PROPERTY = "lae.kernels";
+    public static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final KernelBackend SCALAR = new ScalarKernels();
+    private static final KernelBackend VECTOR = loadVectorApi();
+    private static final KernelBackend BACKEND = select();
+
+    private Kernels() {}
+
+    /** The backend every SharedVector and SharedMatrix operation runs on. */
+    public static KernelBackend backend() {
+        return BACKEND;
+    }
+
+    public static KernelBackend scalar() {
+        return SCALAR;
+    }
+
+    /** The SIMD backend, or null when the incubator module is not enabled or the CPU has nothing to offer. */
+    public static KernelBackend vectorApi() {
+        return VECTOR;
+    }
+
+    static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        return BACKEND.dot(a, aOff, b, bOff, n);
+    }
+
+    static void add(double[] a, int aOff, double[] b, int bOff, int n) {
+        BACKEND.add(a, aOff, b, bOff, n);
+    }
+
+    static void negate(double[] a, int aOff, int n) {
+        BACKEND.negate(a, aOff, n);
+    }
+
+    static void multiplyRowMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                                 double[][] c, int[] cOff, int inner, int cols) {
+        BACKEND.multiplyRowMajor(a, aOff, b, bOff, c, cOff, inner, cols);
+    }
+
+    static void multiplyColumnMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                                    double[][] c, int[] cOff, int inner, int cols) {
+        BACKEND.multiplyColumnMajor(a, aOff, b, bOff, c, cOff, inner, cols);
+    }
+
+    // by name, so this class (and everything else) still loads when the module is missing
+    private static KernelBackend loadVectorApi() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (KernelBackend) Class.forName("memory.VectorApiKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static KernelBackend select() {
+        String requested = System.getProperty(PROPERTY, "scalar").toLowerCase(Locale.ROOT);
+        switch (requested) {
+            case "scalar":
+                return SCALAR;
+            case "vector":
+                if (VECTOR == null) {
+                    System.err.println("warning: " + PROPERTY + "=vector needs --add-modules " + VECTOR_MODULE
+                            + " and SIMD support, using the scalar kernels");
+                    return SCALAR;
+                }
+                return VECTOR;
+            default:
+                System.err.println("warning: " + PROPERTY + " must be scalar or vector, not " + requested
+                        + ", using the scalar kernels");
+                return SCALAR;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package memory;
+
+/**
+ * How a SharedVector guards its data.
+ * REENTRANT uses a ReentrantReadWriteLock, so every read takes the shared lock.
+ * OPTIMISTIC uses a StampedLock: get, length, getOrientation and dot first read without locking
+ * and only fall back to the read lock if a writer got in the way.
+ */
+public enum LockMode {
+    REENTRANT,
+    OPTIMISTIC
+}
@@ -0,0 +1,48 @@
+package memory;
+
+/**
+ * Plain loops, left to the JIT's auto-vectorizer. Always available.
+ */
+final class ScalarKernels implements KernelBackend {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        double result = 0.0;
+        for (int i = 0; i < n; i++) {
+            result += a[aOff + i] * b[bOff + i];
+        }
+        return result;
+    }
+
+    @Override
+    public void add(double[] a, int aOff, double[] b, int bOff, int n) {
+        for (int i = 0; i < n; i++) {
+            a[aOff + i] += b[bOff + i];
+        }
+    }
+
+    @Override
+    public void negate(double[] a, int aOff, int n) {
+        int end = aOff + n;
+        for (int i = aOff; i < end; i++) {
+            a[i] = -a[i];
+        }
+    }
+
+    @Override
+    public void multiplyRowMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                                 double[][] c, int[] cOff, int inner, int cols) {
+        GemmKernel.multiplyRowMajor(a, aOff, b, bOff, c, cOff, inner, cols);
+    }
+
+    @Override
+    public void multiplyColumnMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                                    double[][] c, int[] cOff, int inner, int cols) {
+        GemmKernel.multiplyColumnMajor(a, aOff, b, bOff, c, cOff, inner, cols);
+    }
+}
@@ -2,6 +2,11 @@ package memory;
 
 public class SharedMatrix {
 
+    // largest slab we allocate in one piece; bigger matrices are split across a few slabs
+    static final int MAX_SLAB_ELEMENTS = 1 << 27;
+    // side of the square tiles used when copying a column-major matrix out as rows
+    private static final int TRANSPOSE_TILE = 64;
+
     private volatile SharedVector[] vectors = {}; // underlying vectors
 
 
@@ -17,25 +22,31 @@ public class SharedMatrix {
 
     }
 
+    /**
+     * Creates a zero-filled row-major matrix of the given shape, used as an output buffer.
+     */
+    public SharedMatrix(int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("negative dimensions: " + rows + " x " + cols);
+        }
+        this.vectors = allocate(rows, cols, VectorOrientation.ROW_MAJOR);
+    }
+
     public void loadRowMajor(double[][] matrix) {
         // TODO: replace internal data with new row-major matrix
 
         if( matrix == null){
             throw new IllegalArgumentException("matrix is null");
         }
-        SharedVector[] newVectors = new SharedVector[matrix.length];
-
-        for(int i = 0; i < matrix.length; i++) {
-            if (matrix[i] == null) {
-                throw new IllegalArgumentException("row " + i + " is null");
-            }
-            double[] row = new double[matrix[i].length];
-            for (int j = 0; j < matrix[i].length; j++) {
-                row[j] = matrix[i][j];
-            }
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : checkRectangular(matrix);
 
+        // all rows share one slab, row i starts at i * cols
+        SharedVector[] newVectors = allocate(rows, cols, VectorOrientation.ROW_MAJOR);
 
-            newVectors[i] = new SharedVector(row, VectorOrientation.ROW_MAJOR);
+        // the new vectors are not published yet, so no locking is needed while filling them
+        for(int i = 0; i < rows; i++) {
+            System.arraycopy(matrix[i], 0, newVectors[i].storage(), newVectors[i].offset(), cols);
         }
 
         this.vectors = newVectors;
@@ -56,23 +67,18 @@ public class SharedMatrix {
         }
 
         int rows = matrix.length;
-        int cols = matrix[0].length;
+        int cols = checkRectangular(matrix);
 
-        //check none of the elements are null
-        for (int r = 0; r < rows; r++) {
-            if (matrix[r] == null || matrix[r].length != cols) {
-                throw new IllegalArgumentException("matrix is not rectangular");
-            }
-        }
-
-        SharedVector[] newVectors = new SharedVector[cols];
+        // all columns share one slab, column c starts at c * rows
+        SharedVector[] newVectors = allocate(cols, rows, VectorOrientation.COLUMN_MAJOR);
 
+        // the new vectors are not published yet, so no locking is needed while filling them
         for (int c = 0; c < cols; c++) {
-            double[] column = new double[rows];
+            double[] storage = newVectors[c].storage();
+            int base = newVectors[c].offset();
             for (int r = 0; r < rows; r++) {
-                column[r] = matrix[r][c];
+                storage[base + r] = matrix[r][c];
             }
-            newVectors[c] = new SharedVector(column, VectorOrientation.COLUMN_MAJOR);
         }
 
         this.vectors = newVectors;
@@ -83,37 +89,35 @@ public class SharedMatrix {
     public double[][] readRowMajor() {
         // TODO: return matrix contents as a row-major double[][]
         SharedVector[] output = this.vectors;
+        // one read lock per vector for the whole copy, the loops below use the raw arrays
         acquireAllVectorReadLocks(output);
         try{
             if(output.length == 0){
                 return new double[0][0];
             }
 
-            if(this.getOrientation() == VectorOrientation.ROW_MAJOR){
+            if(output[0].orientationUnlocked() == VectorOrientation.ROW_MAJOR){
                 double[][] out = new double[output.length][];
 
                 for (int i = 0; i < output.length; i++) {
-                    int cols = output[i].length();
+                    int cols = output[i].lengthUnlocked();
                     out[i] = new double[cols];
-                    for (int j = 0; j < cols; j++) {
-                        out[i][j] = output[i].get(j);
-                    }
+                    System.arraycopy(output[i].storage(), output[i].offset(), out[i], 0, cols);
                 }
                 return out;
             }else{
 
                 int cols = output.length;
-                int rows = output[0].length();
+                int rows = output[0].lengthUnlocked();
 
-                double[][] out = new double[rows][cols];
                 for (int i = 0; i < cols; i++) {
-                    if (output[i].length() != rows) {
+                    if (output[i].lengthUnlocked() != rows) {
                         throw new IllegalArgumentException("column vectors length changes");
                     }
-                    for (int j = 0; j < rows; j++) {
-                        out[j][i] = output[i].get(j);
-                    }
                 }
+
+                double[][] out = new double[rows][cols];
+                transposeInto(output, rows, cols, out, new int[rows]);
                 return out;
 
             }
@@ -125,6 +129,275 @@ public class SharedMatrix {
 
     }
 
+    // blocked transpose of column vectors into rows: a TILE x TILE tile of the source and of the output stay in cache together
+    private static void transposeInto(SharedVector[] columns, int rows, int cols, double[][] out, int[] outOff) {
+        for (int cc = 0; cc < cols; cc += TRANSPOSE_TILE) {
+            int cEnd = Math.min(cols, cc + TRANSPOSE_TILE);
+            for (int rr = 0; rr < rows; rr += TRANSPOSE_TILE) {
+                int rEnd = Math.min(rows, rr + TRANSPOSE_TILE);
+                for (int c = cc; c < cEnd; c++) {
+                    double[] column = columns[c].storage();
+                    int base = columns[c].offset();
+                    for (int r = rr; r < rEnd; r++) {
+                        out[r][outOff[r] + c] = column[base + r];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns this matrix into its transpose without moving any element: every vector just changes orientation,
+     * rows become columns and the other way around. Operations that accept either orientation
+     * (negate, add, the right operand of a multiply) then read the data where it is.
+     */
+    public void transposeView() {
+        for (SharedVector v : this.vectors) {
+            v.transpose();
+        }
+    }
+
+    /**
+     * A row-major copy of this matrix in one blocked pass, or this matrix itself if it is row-major already.
+     */
+    public SharedMatrix toRowMajor() {
+        SharedVector[] columns = this.vectors;
+        if (columns.length == 0 || columns[0].getOrientation() == VectorOrientation.ROW_MAJOR) {
+            return this;
+        }
+        acquireAllVectorReadLocks(columns);
+        try {
+            int cols = columns.length;
+            int rows = columns[0].lengthUnlocked();
+            for (SharedVector column : columns) {
+                if (column.lengthUnlocked() != rows) {
+                    throw new IllegalArgumentException("column vectors length changes");
+                }
+            }
+            SharedVector[] rowVectors = allocate(rows, cols, VectorOrientation.ROW_MAJOR);
+            double[][] out = new double[rows][];
+            int[] outOff = new int[rows];
+            for (int r = 0; r < rows; r++) {
+                out[r] = rowVectors[r].storage();
+                outOff[r] = rowVectors[r].offset();
+            }
+            transposeInto(columns, rows, cols, out, outOff);
+            SharedMatrix copy = new SharedMatrix();
+            copy.vectors = rowVectors;
+            return copy;
+        } finally {
+            releaseAllVectorReadLocks(columns);
+        }
+    }
+
+    /**
+     * Adds other to vectors [from, to) of this matrix, element by element of the matrices they represent.
+     * With equal orientations vector i simply gets vector i of other. Otherwise (A + B^T after a transpose view)
+     * vector i gets element i of every vector of other, a tile of other's vectors at a time so that
+     * neither side is re-read from memory; nothing is transposed first.
+     */
+    public void addVectors(SharedMatrix other, int from, int to) {
+        SharedVector[] mine = this.vectors;
+        SharedVector[] theirs = other.vectors;
+        if (rows() != other.rows() || cols() != other.cols()) {
+            throw new IllegalArgumentException("Addition: dimension mismatch (" + rows() + " x " + cols()
+                    + ") + (" + other.rows() + " x " + other.cols() + ")");
+        }
+        if (mine.length == 0 || mine[0].getOrientation() == theirs[0].getOrientation()) {
+            for (int i = from; i < to; i++) {
+                mine[i].add(theirs[i]);
+            }
+            return;
+        }
+
+        // every task of one add takes other's read locks first and then its own vectors, always in this order
+        acquireAllVectorReadLocks(theirs);
+        int locked = from;
+        try {
+            for (; locked < to; locked++) {
+                mine[locked].writeLock();
+            }
+            int stride = theirs.length;
+            for (int jj = 0; jj < stride; jj += TRANSPOSE_TILE) {
+                int jEnd = Math.min(stride, jj + TRANSPOSE_TILE);
+                for (int i = from; i < to; i++) {
+                    double[] target = mine[i].storage();
+                    int base = mine[i].offset();
+                    for (int j = jj; j < jEnd; j++) {
+                        target[base + j] += theirs[j].storage()[theirs[j].offset() + i];
+                    }
+                }
+            }
+        } finally {
+            for (int i = from; i < locked; i++) {
+                mine[i].writeUnlock();
+            }
+            releaseAllVectorReadLocks(theirs);
+        }
+    }
+
+    /**
+     * Moves the contents of other into this matrix without copying any element.
+     * other is left empty, so the data has exactly one owner afterwards.
+     */
+    public void takeFrom(SharedMatrix other) {
+        if (other == null) {
+            throw new IllegalArgumentException("other is null");
+        }
+        SharedVector[] moved = other.vectors;
+        other.vectors = new SharedVector[0];
+        this.vectors = moved;
+    }
+
+    /**
+     * Computes rows [rowFrom, rowTo) of this x right into the same rows of out.
+     * this and out must be row-major, right may be stored either way.
+     * Locks are taken once per vector for the whole block instead of once per element.
+     */
+    public void multiplyRowsInto(SharedMatrix right, SharedMatrix out, int rowFrom, int rowTo) {
+        multiplyTileInto(right, out, rowFrom, rowTo, 0, right == null ? 0 : right.cols());
+    }
+
+    /**
+     * Computes the output tile rows [rowFrom, rowTo) x columns [colFrom, colTo) of this x right into out,
+     * so a product with fewer rows than workers can still be spread over all of them.
+     * Every element is the same dot product SharedVector.vecMatMul computes for its row.
+     * A tile narrower than the output is computed into a private buffer under read locks only and
+     * copied in under the write locks of its rows, so tiles sharing rows do not wait on each other
+     * while they compute.
+     */
+    public void multiplyTileInto(SharedMatrix right, SharedMatrix out, int rowFrom, int rowTo, int colFrom, int colTo) {
+        if (right == null || out == null) {
+            throw new IllegalArgumentException("matrix is null");
+        }
+        if (out == this || out == right) {
+            throw new IllegalArgumentException("output must be a separate matrix");
+        }
+        SharedVector[] left = this.vectors;
+        SharedVector[] rightVecs = right.vectors;
+        // A x A: the right side already covers the left rows, vector locks are not reentrant in every LockMode
+        boolean lockLeft = left != rightVecs;
+        SharedVector[] outVecs = out.vectors;
+        if (this.getOrientation() != VectorOrientation.ROW_MAJOR || out.getOrientation() != VectorOrientation.ROW_MAJOR) {
+            throw new IllegalArgumentException("multiply expects row-major left and output matrices");
+        }
+        if (rowFrom < 0 || rowTo > left.length || rowTo > outVecs.length || rowFrom > rowTo) {
+            throw new IndexOutOfBoundsException("rows [" + rowFrom + ", " + rowTo + ") are out of range");
+        }
+
+        int rows = rowTo - rowFrom;
+        boolean rightIsRows = right.getOrientation() == VectorOrientation.ROW_MAJOR;
+        int inner = right.rows();
+        int cols = right.cols();
+        if (colFrom < 0 || colTo > cols || colFrom > colTo) {
+            throw new IndexOutOfBoundsException("columns [" + colFrom + ", " + colTo + ") are out of range");
+        }
+        int width = colTo - colFrom;
+        boolean fullWidth = width == cols;
+
+        if (lockLeft) {
+            for (int i = rowFrom; i < rowTo; i++) {
+                left[i].readLock();
+            }
+        }
+        acquireAllVectorReadLocks(rightVecs);
+        // full rows are written in place, so their write locks are held for the whole computation
+        if (fullWidth) {
+            for (int i = rowFrom; i < rowTo; i++) {
+                outVecs[i].writeLock();
+            }
+        }
+        double[][] c = new double[rows][];
+        int[] cOff = new int[rows];
+        try {
+            double[][] a = new double[rows][];
+            int[] aOff = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                SharedVector l = left[rowFrom + i];
+                SharedVector o = outVecs[rowFrom + i];
+                if (l.lengthUnlocked() != inner) {
+                    throw new IllegalArgumentException(
+                            "Dimension mismatch: Vector length (" + l.lengthUnlocked() +
+                                    ") must match Matrix rows (" + inner + ")");
+                }
+                if (o.lengthUnlocked() != cols) {
+                    throw new IllegalArgumentException("output row " + (rowFrom + i) + " has length " + o.lengthUnlocked() + ", expected " + cols);
+                }
+                a[i] = l.storage();
+                aOff[i] = l.offset();
+                if (fullWidth) {
+                    c[i] = o.storage();
+                    cOff[i] = o.offset();
+                } else {
+                    c[i] = new double[width];
+                }
+            }
+
+            // the kernels see only the columns of the tile
+            double[][] b;
+            int[] bOff;
+            if (rightIsRows) {
+                b = new double[rightVecs.length][];
+                bOff = new int[rightVecs.length];
+                for (int k = 0; k < rightVecs.length; k++) {
+                    b[k] = rightVecs[k].storage();
+                    bOff[k] = rightVecs[k].offset() + colFrom;
+                }
+                Kernels.multiplyRowMajor(a, aOff, b, bOff, c, cOff, inner, width);
+            } else {
+                b = new double[width][];
+                bOff = new int[width];
+                for (int k = 0; k < width; k++) {
+                    b[k] = rightVecs[colFrom + k].storage();
+                    bOff[k] = rightVecs[colFrom + k].offset();
+                }
+                Kernels.multiplyColumnMajor(a, aOff, b, bOff, c, cOff, inner, width);
+            }
+        } finally {
+            if (fullWidth) {
+                for (int i = rowFrom; i < rowTo; i++) {
+                    outVecs[i].writeUnlock();
+                }
+            }
+            releaseAllVectorReadLocks(rightVecs);
+            if (lockLeft) {
+                for (int i = rowFrom; i < rowTo; i++) {
+                    left[i].readUnlock();
+                }
+            }
+        }
+
+        if (!fullWidth) {
+            for (int i = 0; i < rows; i++) {
+                SharedVector o = outVecs[rowFrom + i];
+                o.writeLock();
+                try {
+                    System.arraycopy(c[i], 0, o.storage(), o.offset() + colFrom, width);
+                } finally {
+                    o.writeUnlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of rows of the matrix this object represents, whatever its orientation.
+     */
+    public int rows() {
+        SharedVector[] vecs = this.vectors;
+        if (vecs.length == 0) return 0;
+        return vecs[0].getOrientation() == VectorOrientation.ROW_MAJOR ? vecs.length : vecs[0].length();
+    }
+
+    /**
+     * Number of columns of the matrix this object represents, whatever its orientation.
+     */
+    public int cols() {
+        SharedVector[] vecs = this.vectors;
+        if (vecs.length == 0) return 0;
+        return vecs[0].getOrientation() == VectorOrientation.ROW_MAJOR ? vecs[0].length() : vecs.length;
+    }
+
     public SharedVector get(int index) {
         // TODO: return vector at index
         return vectors[index];
@@ -141,6 +414,55 @@ public class SharedMatrix {
         return vectors[0].getOrientation();
     }
 
+    // package access for loaders that fill freshly allocated vectors themselves
+    void setVectors(SharedVector[] vectors) {
+        this.vectors = vectors;
+    }
+
+    SharedVector[] vectorsSnapshot() {
+        return this.vectors;
+    }
+
+    /**
+     * Allocates {@code count} zeroed vectors of {@code stride} elements each.
+     * The vectors are views into as few contiguous slabs as possible: vector i lives at
+     * offset (i % perSlab) * stride of its slab, so neighbouring vectors are neighbours in memory.
+     */
+    static SharedVector[] allocate(int count, int stride, VectorOrientation orientation) {
+        SharedVector[] out = new SharedVector[count];
+        if (count == 0) {
+            return out;
+        }
+        int perSlab = stride == 0 ? count : Math.max(1, Math.min(count, MAX_SLAB_ELEMENTS / stride));
+        double[] slab = null;
+        for (int i = 0; i < count; i++) {
+            int slot = i % perSlab;
+            if (slot == 0) {
+                int inThisSlab = Math.min(perSlab, count - i);
+                slab = new double[Math.multiplyExact(inThisSlab, stride)];
+            }
+            out[i] = new SharedVector(slab, slot * stride, stride, orientation);
+        }
+        return out;
+    }
+
+    // returns the common row width, or throws if rows are null or of different widths
+    private static int checkRectangular(double[][] matrix) {
+        if (matrix[0] == null) {
+            throw new IllegalArgumentException("row 0 is null");
+        }
+        int cols = matrix[0].length;
+        for (int r = 0; r < matrix.length; r++) {
+            if (matrix[r] == null) {
+                throw new IllegalArgumentException("row " + r + " is null");
+            }
+            if (matrix[r].length != cols) {
+                throw new IllegalArgumentException("matrix is not rectangular");
+            }
+        }
+        return cols;
+    }
+
     private void acquireAllVectorReadLocks(SharedVector[] vecs) {
         // TODO: acquire read lock for each vector
         for (SharedVector v : vecs) {
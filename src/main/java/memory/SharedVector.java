@@ -1,30 +1,85 @@
 package memory;
 
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SharedVector {
 
+    // lock mode given to vectors created from now on
+    private static volatile LockMode defaultLockMode = LockMode.REENTRANT;
+    // source of lockOrder, vectors locked together are always locked in increasing order
+    private static final AtomicLong NEXT_LOCK_ORDER = new AtomicLong();
+
     private double[] vector;
+    private int offset; // index of element 0 inside the backing array
+    private int length; // number of elements this vector owns in the backing array
     private VectorOrientation orientation;
-    private ReadWriteLock lock = new java.util.concurrent.locks.ReentrantReadWriteLock();
+    private final VectorLock lock = VectorLock.create(defaultLockMode);
+    private final long lockOrder = NEXT_LOCK_ORDER.getAndIncrement();
 
     public SharedVector(double[] vector, VectorOrientation orientation) {
         // TODO: store vector data and its orientation
-        this.vector = vector; //maybe we should implement deep copy
+        this(vector, 0, vector.length, orientation); //maybe we should implement deep copy
+    }
+
+    /**
+     * Creates a vector that views {@code length} elements of a larger backing array,
+     * starting at {@code offset}. Used by SharedMatrix to keep all of its vectors
+     * in one contiguous slab instead of one small array per vector.
+     */
+    SharedVector(double[] storage, int offset, int length, VectorOrientation orientation) {
+        if (offset < 0 || length < 0 || offset + length > storage.length) {
+            throw new IndexOutOfBoundsException("view [" + offset + ", " + (offset + length) + ") is outside of storage of size " + storage.length);
+        }
+        this.vector = storage;
+        this.offset = offset;
+        this.length = length;
         this.orientation = orientation;
     }
 
+    /**
+     * Selects the lock used by vectors created after this call.
+     * Existing vectors keep the lock they were created with.
+     * The setting is global to the JVM, not per engine or job: set it once before the first run
+     * (Main's --lock-mode does), a change while jobs are in flight only reaches their later nodes.
+     */
+    public static void setDefaultLockMode(LockMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode is null");
+        }
+        defaultLockMode = mode;
+    }
+
+    public static LockMode getDefaultLockMode() {
+        return defaultLockMode;
+    }
+
     public double get(int index) {
         // TODO: return element at index (read-locked)
+        // optimistic attempt: read into locals and keep the value only if no writer interfered
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            double[] v = this.vector;
+            int off = this.offset;
+            int len = this.length;
+            if (index >= 0 && index < len && off + index < v.length) {
+                double value = v[off + index];
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } else if (lock.validate(stamp)) {
+                throw new IndexOutOfBoundsException("index should be between 0 and " + (len - 1) + " but was: " + index);
+            }
+        }
+
         double result;
         this.readLock();
         try 
         {
-            if (index < 0 || index >= vector.length) 
+            if (index < 0 || index >= length) 
             {
-                throw new IndexOutOfBoundsException("index should be between 0 and " + (vector.length - 1) + " but was: " + index);
+                throw new IndexOutOfBoundsException("index should be between 0 and " + (length - 1) + " but was: " + index);
             }
-            result = this.vector[index];
+            result = this.vector[offset + index];
         } 
         finally 
         {
@@ -35,10 +90,17 @@ public class SharedVector {
 
     public int length() {
         // TODO: return vector length
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            int len = this.length;
+            if (lock.validate(stamp)) {
+                return len;
+            }
+        }
         this.readLock();
         try
         {
-            return this.vector.length;
+            return this.length;
         }
         finally
         {
@@ -48,6 +110,13 @@ public class SharedVector {
 
     public VectorOrientation getOrientation() {
         // TODO: return vector orientation
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            VectorOrientation o = this.orientation;
+            if (lock.validate(stamp)) {
+                return o;
+            }
+        }
         this.readLock();
         try
         {
@@ -59,24 +128,41 @@ public class SharedVector {
         }
     }
 
+    // raw access for SharedMatrix and the kernels in this package, caller must hold a lock
+    double[] storage() {
+        return this.vector;
+    }
+
+    int offset() {
+        return this.offset;
+    }
+
+    int lengthUnlocked() {
+        return this.length;
+    }
+
+    VectorOrientation orientationUnlocked() {
+        return this.orientation;
+    }
+
     public void writeLock() {
         // TODO: acquire write lock
-        this.lock.writeLock().lock();
+        this.lock.writeLock();
     }
 
     public void writeUnlock() {
         // TODO: release write lock
-        this.lock.writeLock().unlock();
+        this.lock.writeUnlock();
     }
 
     public void readLock() {
         // TODO: acquire read lock
-        this.lock.readLock().lock();
+        this.lock.readLock();
     }
 
     public void readUnlock() {
         // TODO: release read lock
-        this.lock.readLock().unlock();
+        this.lock.readUnlock();
     }
 
     public void transpose() {
@@ -91,43 +177,47 @@ public class SharedVector {
         if (other == null) 
             throw new IllegalArgumentException("other is null");
 
-        int thisLength = this.length();
-        this.writeLock();
-        try
+        //first check if other==this
+        if(this == other)
         {
-            //first check if other==this
-            if(this == other)
+            this.writeLock();
+            try
             {
-                for(int i = 0; i < thisLength; i++)
+                for(int i = 0; i < this.length; i++)
                 {
-                    this.vector[i] *= 2;
+                    this.vector[this.offset + i] *= 2;
                 }
             }
-            else
+            finally
             {
-                // check dimentions
-                int otherLength = other.length();
-                if(thisLength != otherLength)
-                    throw new ArithmeticException("Undefined operation: cannot add A(" + thisLength + " x 1) with B(" + otherLength + " x 1)");
-                other.readLock();
-                try
-                {
-                    // perform computations
-                    for(int i = 0; i < thisLength; i++)
-                    {
-                        this.vector[i] += other.vector[i];
-                    }
-                }
-                finally
-                {
-                    other.readUnlock();
-                }  
+                this.writeUnlock();
             }
+            return;
+        }
+
+        // lock both vectors in lockOrder, so a.add(b) and b.add(a) running together cannot deadlock
+        if (this.lockOrder < other.lockOrder) {
+            this.writeLock();
+            other.readLock();
+        } else {
+            other.readLock();
+            this.writeLock();
+        }
+        try
+        {
+            // check dimentions
+            int thisLength = this.length;
+            int otherLength = other.length;
+            if(thisLength != otherLength)
+                throw new ArithmeticException("Undefined operation: cannot add A(" + thisLength + " x 1) with B(" + otherLength + " x 1)");
+            // perform computations
+            Kernels.add(this.vector, this.offset, other.vector, other.offset, thisLength);
         }
         finally
         {
             this.writeUnlock();
-        }  
+            other.readUnlock();
+        }
     }
 
     public void negate() 
@@ -137,10 +227,7 @@ public class SharedVector {
         try
         {
             //negation
-            for (int i = 0; i < this.vector.length; i++)
-            {
-                this.vector[i] = -this.vector[i];
-            }
+            Kernels.negate(this.vector, this.offset, this.length);
         }
         finally
         {
@@ -153,28 +240,45 @@ public class SharedVector {
         if (other == null) 
             throw new IllegalArgumentException("other is null");
 
-        double result = 0.0;
-        int thisLength = this.length();
+        // optimistic attempt: compute on a snapshot and keep it only if neither vector was written meanwhile
+        long thisStamp = this.lock.tryOptimisticRead();
+        long otherStamp = other.lock.tryOptimisticRead();
+        if (thisStamp != 0L && otherStamp != 0L) {
+            double[] a = this.vector, b = other.vector;
+            int aOff = this.offset, bOff = other.offset;
+            int aLen = this.length, bLen = other.length;
+            if (aLen == bLen && aOff + aLen <= a.length && bOff + bLen <= b.length) {
+                double value = Kernels.dot(a, aOff, b, bOff, aLen);
+                if (this.lock.validate(thisStamp) && other.lock.validate(otherStamp)) {
+                    return value;
+                }
+            } else if (this.lock.validate(thisStamp) && other.lock.validate(otherStamp)) {
+                throw new ArithmeticException("Undefined operation: cannot multiply A(" + aLen + " x 1) by B(" + bLen + " x 1)");
+            }
+        }
+
+        double result;
 
-        this.readLock();
-        other.readLock();
+        // lock in lockOrder rather than caller order, and only once when both sides are the same vector
+        SharedVector first = this.lockOrder <= other.lockOrder ? this : other;
+        SharedVector second = first == this ? other : this;
+        first.readLock();
+        if (second != first) second.readLock();
         try
         {
             // first check dimentions
-            int otherLength = other.length();
+            int thisLength = this.length;
+            int otherLength = other.length;
             if(thisLength != otherLength)
                 throw new ArithmeticException("Undefined operation: cannot multiply A(" + thisLength + " x 1) by B(" + otherLength + " x 1)");
 
             // perform computations
-            for (int i = 0; i < thisLength; i++)
-            {
-                result += this.vector[i] * other.vector[i];
-            }
+            result = Kernels.dot(this.vector, this.offset, other.vector, other.offset, thisLength);
         }
         finally
         {
-            other.readUnlock();
-            this.readUnlock();
+            if (second != first) second.readUnlock();
+            first.readUnlock();
         }  
         
         return result;
@@ -188,23 +292,31 @@ public class SharedVector {
 
         this.writeLock();
         try {
-            int myLength = this.vector.length;
+            int myLength = this.length;
             int matRows;
             int matCols;
 
+            // snapshot the matrix vectors, this vector may be one of them and is already locked
+            int numVectors = matrix.length();
+            SharedVector[] vecs = new SharedVector[numVectors];
+            for (int k = 0; k < numVectors; k++) {
+                vecs[k] = matrix.get(k);
+            }
+            boolean rowMajor = numVectors == 0 || orientationOf(vecs[0]) == VectorOrientation.ROW_MAJOR;
+
             // check dimensions
-            if (matrix.getOrientation() == VectorOrientation.ROW_MAJOR) {
-                matRows = matrix.length();
+            if (rowMajor) {
+                matRows = numVectors;
                 if (matRows > 0) {
-                    matCols = matrix.get(0).length();
+                    matCols = lengthOf(vecs[0]);
                 } else {
                     matCols = 0;
                 }
             } else {
                 // column major case
-                matCols = matrix.length();
+                matCols = numVectors;
                 if (matCols > 0) {
-                    matRows = matrix.get(0).length();
+                    matRows = lengthOf(vecs[0]);
                 } else {
                     matRows = 0;
                 }
@@ -221,29 +333,56 @@ public class SharedVector {
             double[] result = new double[matCols];
 
 
-            if (matrix.getOrientation() == VectorOrientation.COLUMN_MAJOR) {
-                // matrix is columns
-                for (int i = 0; i < matCols; i++) {
-                    SharedVector colVec = matrix.get(i);
-                    result[i] = this.dot(colVec);
+            // lock every matrix vector once, then run the blocked kernel on the raw arrays
+            double[][] b = new double[numVectors][];
+            int[] bOff = new int[numVectors];
+            int locked = 0;
+            try {
+                for (; locked < numVectors; locked++) {
+                    SharedVector v = vecs[locked];
+                    if (v != this) v.readLock();
+                    b[locked] = v.vector;
+                    bOff[locked] = v.offset;
                 }
-            } else {
-                // matrix is rows
-                for (int j = 0; j < matCols; j++) {
-                    double sum = 0;
-                    // check rows for each column
-                    for (int k = 0; k < matRows; k++) {
-                        double matVal = matrix.get(k).get(j);
-                        sum += this.vector[k] * matVal;
-                    }
-                    result[j] = sum;
+
+                double[][] a = {this.vector};
+                int[] aOff = {this.offset};
+                double[][] c = {result};
+                int[] cOff = {0};
+                if (!rowMajor) {
+                    // matrix is columns
+                    Kernels.multiplyColumnMajor(a, aOff, b, bOff, c, cOff, matRows, matCols);
+                } else {
+                    // matrix is rows
+                    Kernels.multiplyRowMajor(a, aOff, b, bOff, c, cOff, matRows, matCols);
+                }
+            } finally {
+                for (int k = 0; k < locked; k++) {
+                    if (vecs[k] != this) vecs[k].readUnlock();
                 }
             }
 
-            this.vector = result;
+            if (matCols == this.length) {
+                // same shape, write back into our slot of the backing array
+                System.arraycopy(result, 0, this.vector, this.offset, matCols);
+            } else {
+                // shape changed, the vector can no longer live in the shared slab
+                this.vector = result;
+                this.offset = 0;
+                this.length = matCols;
+            }
 
         } finally {
             this.writeUnlock();
         }
     }
+
+    // length/orientation of v from inside a method that already holds this vector's write lock
+    private int lengthOf(SharedVector v) {
+        return v == this ? this.length : v.length();
+    }
+
+    private VectorOrientation orientationOf(SharedVector v) {
+        return v == this ? this.orientation : v.getOrientation();
+    }
 }
@@ -0,0 +1,224 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strassen-Winograd multiplication: 7 half-size products and 15 additions per level instead of 8 products.
+ *
+ * One instance is one level of the recursion. The constructor splits A (m x k) and B (k x n) into
+ * quadrants and forms the Winograd sums S1..S4 and T1..T4, productTasks() are the seven products,
+ * each recursing on its own while every dimension is at least threshold and then falling back to the
+ * blocked kernel, and combineInto() assembles C from them. Odd dimensions are zero padded to the
+ * next even size in the quadrants and cropped again in C.
+ *
+ * Every level rounds differently from the classical product: the error grows by a small constant
+ * factor per level, so the threshold also bounds how far results may drift from GemmKernel's.
+ */
+public final class StrassenWinograd {
+
+    // off: a split changes the rounding, and single-threaded it only pays off from about 2048 on (StrassenBenchmark)
+    public static final int DEFAULT_THRESHOLD = 0;
+    // sub-products per level, each one task of the engine
+    public static final int PRODUCTS = 7;
+
+    private final int m, n;
+    private final int m2, k2, n2; // quadrant sizes, rounded up
+    private final int threshold;
+    // operands of the seven products, released as soon as a product is done
+    private final double[][] lefts = new double[PRODUCTS][];
+    private final double[][] rights = new double[PRODUCTS][];
+    private final double[][] products = new double[PRODUCTS][];
+
+    /**
+     * Whether an m x k by k x n product is large enough to split.
+     */
+    public static boolean applies(int m, int k, int n, int threshold) {
+        return threshold > 0 && Math.min(m, Math.min(k, n)) >= threshold;
+    }
+
+    /**
+     * Splits left x right, reading both under their vectors' read locks.
+     */
+    public static StrassenWinograd split(SharedMatrix left, SharedMatrix right, int threshold) {
+        int m = left.rows(), k = left.cols(), n = right.cols();
+        if (right.rows() != k) {
+            throw new IllegalArgumentException("Multiplication: dimension mismatch (" + m + " x " + k
+                    + ") * (" + right.rows() + " x " + n + ")");
+        }
+        return new StrassenWinograd(flatRowMajor(left, m, k), flatRowMajor(right, k, n), m, k, n, threshold);
+    }
+
+    /**
+     * a (m x k) times b (k x n) on the calling thread, both row-major without padding.
+     */
+    public static double[] multiply(double[] a, double[] b, int m, int k, int n, int threshold) {
+        if (!applies(m, k, n, threshold)) {
+            double[] c = new double[m * n];
+            Kernels.multiplyRowMajor(rowsOf(a, m), offsets(m, k), rowsOf(b, k), offsets(k, n), rowsOf(c, m), offsets(m, n), k, n);
+            return c;
+        }
+        StrassenWinograd level = new StrassenWinograd(a, b, m, k, n, threshold);
+        for (int i = 0; i < PRODUCTS; i++) {
+            level.product(i);
+        }
+        double[] c = new double[m * n];
+        level.combine(rowsOf(c, m), offsets(m, n));
+        return c;
+    }
+
+    private StrassenWinograd(double[] a, double[] b, int m, int k, int n, int threshold) {
+        this.m = m;
+        this.n = n;
+        this.m2 = (m + 1) / 2;
+        this.k2 = (k + 1) / 2;
+        this.n2 = (n + 1) / 2;
+        this.threshold = threshold;
+
+        double[] a11 = quadrant(a, m, k, 0, 0, m2, k2);
+        double[] a12 = quadrant(a, m, k, 0, k2, m2, k2);
+        double[] a21 = quadrant(a, m, k, m2, 0, m2, k2);
+        double[] a22 = quadrant(a, m, k, m2, k2, m2, k2);
+        double[] b11 = quadrant(b, k, n, 0, 0, k2, n2);
+        double[] b12 = quadrant(b, k, n, 0, n2, k2, n2);
+        double[] b21 = quadrant(b, k, n, k2, 0, k2, n2);
+        double[] b22 = quadrant(b, k, n, k2, n2, k2, n2);
+
+        // S1 = A21 + A22, S2 = S1 - A11, S3 = A11 - A21, S4 = A12 - S2
+        double[] s1 = new double[m2 * k2], s2 = new double[m2 * k2], s3 = new double[m2 * k2], s4 = new double[m2 * k2];
+        for (int i = 0; i < s1.length; i++) {
+            s1[i] = a21[i] + a22[i];
+            s2[i] = s1[i] - a11[i];
+            s3[i] = a11[i] - a21[i];
+            s4[i] = a12[i] - s2[i];
+        }
+        // T1 = B12 - B11, T2 = B22 - T1, T3 = B22 - B12, T4 = T2 - B21
+        double[] t1 = new double[k2 * n2], t2 = new double[k2 * n2], t3 = new double[k2 * n2], t4 = new double[k2 * n2];
+        for (int i = 0; i < t1.length; i++) {
+            t1[i] = b12[i] - b11[i];
+            t2[i] = b22[i] - t1[i];
+            t3[i] = b22[i] - b12[i];
+            t4[i] = t2[i] - b21[i];
+        }
+
+        // M1 = A11 B11, M2 = A12 B21, M3 = S4 B22, M4 = A22 T4, M5 = S1 T1, M6 = S2 T2, M7 = S3 T3
+        double[][] l = {a11, a12, s4, a22, s1, s2, s3};
+        double[][] r = {b11, b21, b22, t4, t1, t2, t3};
+        System.arraycopy(l, 0, lefts, 0, PRODUCTS);
+        System.arraycopy(r, 0, rights, 0, PRODUCTS);
+    }
+
+    /**
+     * The seven sub-products, independent of each other. All of them must have run before combineInto.
+     */
+    public List<Runnable> productTasks() {
+        List<Runnable> tasks = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            int index = i;
+            tasks.add(() -> product(index));
+        }
+        return tasks;
+    }
+
+    /**
+     * Replaces out's storage with the m x n row-major product.
+     */
+    public void combineInto(SharedMatrix out) {
+        SharedVector[] vectors = SharedMatrix.allocate(m, n, VectorOrientation.ROW_MAJOR);
+        double[][] rows = new double[m][];
+        int[] rowOff = new int[m];
+        for (int i = 0; i < m; i++) {
+            rows[i] = vectors[i].storage();
+            rowOff[i] = vectors[i].offset();
+        }
+        combine(rows, rowOff);
+        SharedMatrix result = new SharedMatrix();
+        result.setVectors(vectors);
+        out.takeFrom(result);
+    }
+
+    private void product(int i) {
+        products[i] = multiply(lefts[i], rights[i], m2, k2, n2, threshold);
+        lefts[i] = null;
+        rights[i] = null;
+    }
+
+    // C11 = M1 + M2, U2 = M1 + M6, U3 = U2 + M7, C12 = U2 + M5 + M3, C21 = U3 - M4, C22 = U3 + M5
+    private void combine(double[][] rows, int[] rowOff) {
+        double[] p1 = products[0], p2 = products[1], p3 = products[2], p4 = products[3],
+                p5 = products[4], p6 = products[5], p7 = products[6];
+        for (int i = 0; i < m2; i++) {
+            boolean lower = i + m2 < m;
+            double[] top = rows[i];
+            int to = rowOff[i];
+            double[] bottom = lower ? rows[i + m2] : null;
+            int bo = lower ? rowOff[i + m2] : 0;
+            for (int j = 0; j < n2; j++) {
+                int q = i * n2 + j;
+                double u2 = p1[q] + p6[q];
+                double u3 = u2 + p7[q];
+                boolean right = j + n2 < n;
+                top[to + j] = p1[q] + p2[q];
+                if (right) {
+                    top[to + j + n2] = u2 + p5[q] + p3[q];
+                }
+                if (lower) {
+                    bottom[bo + j] = u3 - p4[q];
+                    if (right) {
+                        bottom[bo + j + n2] = u3 + p5[q];
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < PRODUCTS; i++) {
+            products[i] = null;
+        }
+    }
+
+    // the h x w block of the rows x cols matrix at (r0, c0), zero where it runs past the edge
+    private static double[] quadrant(double[] src, int rows, int cols, int r0, int c0, int h, int w) {
+        double[] q = new double[h * w];
+        int height = Math.max(0, Math.min(h, rows - r0));
+        int width = Math.max(0, Math.min(w, cols - c0));
+        for (int i = 0; i < height; i++) {
+            System.arraycopy(src, (r0 + i) * cols + c0, q, i * w, width);
+        }
+        return q;
+    }
+
+    private static double[] flatRowMajor(SharedMatrix matrix, int rows, int cols) {
+        double[] flat = new double[Math.multiplyExact(rows, cols)];
+        if (matrix.getOrientation() != VectorOrientation.ROW_MAJOR) {
+            double[][] data = matrix.readRowMajor();
+            for (int i = 0; i < rows; i++) {
+                System.arraycopy(data[i], 0, flat, i * cols, cols);
+            }
+            return flat;
+        }
+        for (int i = 0; i < rows; i++) {
+            SharedVector v = matrix.get(i);
+            v.readLock();
+            try {
+                System.arraycopy(v.storage(), v.offset(), flat, i * cols, cols);
+            } finally {
+                v.readUnlock();
+            }
+        }
+        return flat;
+    }
+
+    // the same flat array once per row, for the kernels' array + offset interface
+    private static double[][] rowsOf(double[] flat, int rows) {
+        double[][] view = new double[rows][];
+        java.util.Arrays.fill(view, flat);
+        return view;
+    }
+
+    private static int[] offsets(int rows, int stride) {
+        int[] offsets = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            offsets[i] = i * stride;
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,230 @@
+package memory;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import scheduling.CancellationToken;
+
+/**
+ * Kernels on jdk.incubator.vector at the CPU's preferred width (4 doubles on AVX2, 8 on AVX-512).
+ * Only loaded through Kernels, and only when the incubator module is enabled; used with -Dlae.kernels=vector.
+ *
+ * dot keeps four independent accumulators, so consecutive FMAs do not wait on each other.
+ * The row-major GEMM keeps a 4 x 2-vector block of C in registers across a whole KC block,
+ * each B vector load feeds four FMAs and each broadcast of A two; every C element still sums
+ * over p in order, so tiles and row blocks of one product agree with each other bit for bit. Every FMA
+ * rounds once where GemmKernel rounds the product and the sum separately, so the results are not the
+ * scalar kernels' bits, only close to them (KernelsTest compares within a tolerance).
+ * The column-major GEMM runs four lane-parallel dot products per row of A.
+ * Blocking (KC, NC) and cancellation checks are the same as in GemmKernel.
+ */
+final class VectorApiKernels implements KernelBackend {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    VectorApiKernels() {
+        if (LANES < 2) {
+            throw new UnsupportedOperationException("no SIMD registers wider than one double");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-api(" + SPECIES.vectorBitSize() + " bit)";
+    }
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        DoubleVector s0 = DoubleVector.zero(SPECIES);
+        DoubleVector s1 = DoubleVector.zero(SPECIES);
+        DoubleVector s2 = DoubleVector.zero(SPECIES);
+        DoubleVector s3 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i + 4 * LANES <= n; i += 4 * LANES) {
+            s0 = load(a, aOff + i).fma(load(b, bOff + i), s0);
+            s1 = load(a, aOff + i + LANES).fma(load(b, bOff + i + LANES), s1);
+            s2 = load(a, aOff + i + 2 * LANES).fma(load(b, bOff + i + 2 * LANES), s2);
+            s3 = load(a, aOff + i + 3 * LANES).fma(load(b, bOff + i + 3 * LANES), s3);
+        }
+        for (; i + LANES <= n; i += LANES) {
+            s0 = load(a, aOff + i).fma(load(b, bOff + i), s0);
+        }
+        double result = s0.add(s1).add(s2.add(s3)).reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            result += a[aOff + i] * b[bOff + i];
+        }
+        return result;
+    }
+
+    @Override
+    public void add(double[] a, int aOff, double[] b, int bOff, int n) {
+        int i = 0;
+        for (; i + LANES <= n; i += LANES) {
+            load(a, aOff + i).add(load(b, bOff + i)).intoArray(a, aOff + i);
+        }
+        for (; i < n; i++) {
+            a[aOff + i] += b[bOff + i];
+        }
+    }
+
+    @Override
+    public void negate(double[] a, int aOff, int n) {
+        int i = 0;
+        for (; i + LANES <= n; i += LANES) {
+            load(a, aOff + i).neg().intoArray(a, aOff + i);
+        }
+        for (; i < n; i++) {
+            a[aOff + i] = -a[aOff + i];
+        }
+    }
+
+    @Override
+    public void multiplyRowMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                                 double[][] c, int[] cOff, int inner, int cols) {
+        int rows = a.length;
+        for (int pp = 0; pp < inner; pp += GemmKernel.KC) {
+            CancellationToken.checkCurrent();
+            int pEnd = Math.min(inner, pp + GemmKernel.KC);
+            for (int jj = 0; jj < cols; jj += GemmKernel.NC) {
+                int jEnd = Math.min(cols, jj + GemmKernel.NC);
+                int i = 0;
+                for (; i + 3 < rows; i += 4) {
+                    rowBlock4(a, aOff, b, bOff, c, cOff, i, pp, pEnd, jj, jEnd);
+                }
+                for (; i < rows; i++) {
+                    rowBlock1(a[i], aOff[i], b, bOff, c[i], cOff[i], pp, pEnd, jj, jEnd);
+                }
+            }
+        }
+    }
+
+    // rows i..i+3 of C over columns [jj, jEnd), accumulating B rows [pp, pEnd)
+    private static void rowBlock4(double[][] a, int[] aOff, double[][] b, int[] bOff, double[][] c, int[] cOff,
+                                  int i, int pp, int pEnd, int jj, int jEnd) {
+        double[] a0 = a[i], a1 = a[i + 1], a2 = a[i + 2], a3 = a[i + 3];
+        int ao0 = aOff[i], ao1 = aOff[i + 1], ao2 = aOff[i + 2], ao3 = aOff[i + 3];
+        double[] c0 = c[i], c1 = c[i + 1], c2 = c[i + 2], c3 = c[i + 3];
+        int co0 = cOff[i], co1 = cOff[i + 1], co2 = cOff[i + 2], co3 = cOff[i + 3];
+        int j = jj;
+        for (; j + 2 * LANES <= jEnd; j += 2 * LANES) {
+            int jh = j + LANES;
+            DoubleVector c00 = load(c0, co0 + j), c01 = load(c0, co0 + jh);
+            DoubleVector c10 = load(c1, co1 + j), c11 = load(c1, co1 + jh);
+            DoubleVector c20 = load(c2, co2 + j), c21 = load(c2, co2 + jh);
+            DoubleVector c30 = load(c3, co3 + j), c31 = load(c3, co3 + jh);
+            for (int p = pp; p < pEnd; p++) {
+                double[] bp = b[p];
+                int bo = bOff[p];
+                DoubleVector y0 = load(bp, bo + j);
+                DoubleVector y1 = load(bp, bo + jh);
+                DoubleVector x0 = DoubleVector.broadcast(SPECIES, a0[ao0 + p]);
+                c00 = x0.fma(y0, c00);
+                c01 = x0.fma(y1, c01);
+                DoubleVector x1 = DoubleVector.broadcast(SPECIES, a1[ao1 + p]);
+                c10 = x1.fma(y0, c10);
+                c11 = x1.fma(y1, c11);
+                DoubleVector x2 = DoubleVector.broadcast(SPECIES, a2[ao2 + p]);
+                c20 = x2.fma(y0, c20);
+                c21 = x2.fma(y1, c21);
+                DoubleVector x3 = DoubleVector.broadcast(SPECIES, a3[ao3 + p]);
+                c30 = x3.fma(y0, c30);
+                c31 = x3.fma(y1, c31);
+            }
+            c00.intoArray(c0, co0 + j);
+            c01.intoArray(c0, co0 + jh);
+            c10.intoArray(c1, co1 + j);
+            c11.intoArray(c1, co1 + jh);
+            c20.intoArray(c2, co2 + j);
+            c21.intoArray(c2, co2 + jh);
+            c30.intoArray(c3, co3 + j);
+            c31.intoArray(c3, co3 + jh);
+        }
+        if (j < jEnd) {
+            // fewer than two vectors of columns left, finish them row by row
+            for (int r = 0; r < 4; r++) {
+                rowBlock1(a[i + r], aOff[i + r], b, bOff, c[i + r], cOff[i + r], pp, pEnd, j, jEnd);
+            }
+        }
+    }
+
+    // one row of C over columns [jj, jEnd)
+    private static void rowBlock1(double[] ai, int ao, double[][] b, int[] bOff, double[] ci, int co,
+                                  int pp, int pEnd, int jj, int jEnd) {
+        int j = jj;
+        for (; j + LANES <= jEnd; j += LANES) {
+            DoubleVector acc = load(ci, co + j);
+            for (int p = pp; p < pEnd; p++) {
+                acc = DoubleVector.broadcast(SPECIES, ai[ao + p]).fma(load(b[p], bOff[p] + j), acc);
+            }
+            acc.intoArray(ci, co + j);
+        }
+        for (; j < jEnd; j++) {
+            double s = ci[co + j];
+            for (int p = pp; p < pEnd; p++) {
+                s = Math.fma(ai[ao + p], b[p][bOff[p] + j], s);
+            }
+            ci[co + j] = s;
+        }
+    }
+
+    @Override
+    public void multiplyColumnMajor(double[][] a, int[] aOff, double[][] b, int[] bOff,
+                                    double[][] c, int[] cOff, int inner, int cols) {
+        int rows = a.length;
+        for (int pp = 0; pp < inner; pp += GemmKernel.KC) {
+            CancellationToken.checkCurrent();
+            int pEnd = Math.min(inner, pp + GemmKernel.KC);
+            int depth = pEnd - pp;
+            for (int jj = 0; jj < cols; jj += GemmKernel.NC) {
+                int jEnd = Math.min(cols, jj + GemmKernel.NC);
+                for (int i = 0; i < rows; i++) {
+                    double[] ai = a[i];
+                    int ao = aOff[i] + pp;
+                    double[] ci = c[i];
+                    int co = cOff[i];
+                    int j = jj;
+                    // four columns share every load of A[i][p]
+                    for (; j + 3 < jEnd; j += 4) {
+                        double[] b0 = b[j], b1 = b[j + 1], b2 = b[j + 2], b3 = b[j + 3];
+                        int bo0 = bOff[j] + pp, bo1 = bOff[j + 1] + pp, bo2 = bOff[j + 2] + pp, bo3 = bOff[j + 3] + pp;
+                        DoubleVector s0 = DoubleVector.zero(SPECIES);
+                        DoubleVector s1 = DoubleVector.zero(SPECIES);
+                        DoubleVector s2 = DoubleVector.zero(SPECIES);
+                        DoubleVector s3 = DoubleVector.zero(SPECIES);
+                        int p = 0;
+                        for (; p + LANES <= depth; p += LANES) {
+                            DoubleVector x = load(ai, ao + p);
+                            s0 = x.fma(load(b0, bo0 + p), s0);
+                            s1 = x.fma(load(b1, bo1 + p), s1);
+                            s2 = x.fma(load(b2, bo2 + p), s2);
+                            s3 = x.fma(load(b3, bo3 + p), s3);
+                        }
+                        double t0 = s0.reduceLanes(VectorOperators.ADD);
+                        double t1 = s1.reduceLanes(VectorOperators.ADD);
+                        double t2 = s2.reduceLanes(VectorOperators.ADD);
+                        double t3 = s3.reduceLanes(VectorOperators.ADD);
+                        for (; p < depth; p++) {
+                            double x = ai[ao + p];
+                            t0 += x * b0[bo0 + p];
+                            t1 += x * b1[bo1 + p];
+                            t2 += x * b2[bo2 + p];
+                            t3 += x * b3[bo3 + p];
+                        }
+                        ci[co + j] += t0;
+                        ci[co + j + 1] += t1;
+                        ci[co + j + 2] += t2;
+                        ci[co + j + 3] += t3;
+                    }
+                    for (; j < jEnd; j++) {
+                        ci[co + j] += dot(ai, ao, b[j], bOff[j] + pp, depth);
+                    }
+                }
+            }
+        }
+    }
+
+    private static DoubleVector load(double[] array, int offset) {
+        return DoubleVector.fromArray(SPECIES, array, offset);
+    }
+}
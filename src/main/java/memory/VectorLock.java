@@ -0,0 +1,54 @@
+package memory;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The lock of one SharedVector. Both implementations offer the same read/write surface;
+ * tryOptimisticRead returns 0 when the implementation has no optimistic mode, which makes
+ * callers go straight to the locked path.
+ */
+abstract class VectorLock {
+
+    static VectorLock create(LockMode mode) {
+        return mode == LockMode.OPTIMISTIC ? new Stamped() : new Reentrant();
+    }
+
+    abstract void readLock();
+
+    abstract void readUnlock();
+
+    abstract void writeLock();
+
+    abstract void writeUnlock();
+
+    abstract long tryOptimisticRead();
+
+    abstract boolean validate(long stamp);
+
+    private static final class Reentrant extends VectorLock {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        @Override void readLock() { lock.readLock().lock(); }
+        @Override void readUnlock() { lock.readLock().unlock(); }
+        @Override void writeLock() { lock.writeLock().lock(); }
+        @Override void writeUnlock() { lock.writeLock().unlock(); }
+        @Override long tryOptimisticRead() { return 0L; }
+        @Override boolean validate(long stamp) { return false; }
+    }
+
+    // StampedLock is not reentrant, so SharedVector never takes the same lock twice on one thread
+    private static final class Stamped extends VectorLock {
+        private final StampedLock lock = new StampedLock();
+        private final Lock read = lock.asReadLock();
+        private final Lock write = lock.asWriteLock();
+
+        @Override void readLock() { read.lock(); }
+        @Override void readUnlock() { read.unlock(); }
+        @Override void writeLock() { write.lock(); }
+        @Override void writeUnlock() { write.unlock(); }
+        @Override long tryOptimisticRead() { return lock.tryOptimisticRead(); }
+        @Override boolean validate(long stamp) { return lock.validate(stamp); }
+    }
+}
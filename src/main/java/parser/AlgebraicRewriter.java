@@ -0,0 +1,236 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Removes redundant NEGATE and TRANSPOSE nodes from a computation tree with algebraic identities,
+ * each node it removes is one less step the engine schedules. Runs bottom-up, so a rewrite that exposes
+ * another one further up (e.g. a sign hoisted out of a product into a double negation) is picked up in
+ * the same pass.
+ *
+ * By default only the rules that leave every bit of the result as it was fire: DOUBLE_TRANSPOSE,
+ * DOUBLE_NEGATION, and TRANSPOSE_PUSHDOWN through sums and negations, since negation only flips the sign
+ * bit and a transpose only moves elements. The relaxed rules are exact up to the sign of zero and the
+ * order of summation: moving a sign across a sum or a product changes which zeros come out negative
+ * ((-[0.0]) + (-[-0.0]) is [0.0] but -([0.0] + [-0.0]) is [-0.0]), and T(A * B) = T(B) * T(A) runs the
+ * multiply kernel over another layout, which may add the terms of a dot product in another order.
+ * Must run after associativeNesting, the rules only look at binary ADD and MULTIPLY nodes.
+ */
+public class AlgebraicRewriter {
+
+    public enum Rule {
+        /** T(T(A)) = A */
+        DOUBLE_TRANSPOSE,
+        /** -(-A) = A */
+        DOUBLE_NEGATION,
+        /** (-A) * (-B) = A * B, relaxed */
+        NEGATED_FACTORS,
+        /** -((-A) * B) = A * B, and the same for a negated right factor, relaxed */
+        NEGATION_ABSORBED,
+        /** (-A) * B = -(A * B) when the product has no more elements than A, and the same for B, relaxed */
+        SIGN_HOIST,
+        /** (-A) + (-B) = -(A + B), relaxed */
+        NEGATED_SUM,
+        /**
+         * T(A + B) = T(A) + T(B), T(-A) = -T(A), and when relaxed T(A * B) = T(B) * T(A), only when one of
+         * the operands is itself a transpose that then cancels. A lone transpose is a free view, pushing it
+         * down buys nothing.
+         */
+        TRANSPOSE_PUSHDOWN
+    }
+
+    private final boolean relaxed;
+    private final List<Rule> fired = new ArrayList<>();
+    private final IdentityHashMap<ComputationNode, int[]> shapes = new IdentityHashMap<>();
+
+    /** Only the rules that keep the result bit for bit. */
+    public AlgebraicRewriter() {
+        this(false);
+    }
+
+    /** relaxed also moves signs across sums and products and transposes across products, see the class doc. */
+    public AlgebraicRewriter(boolean relaxed) {
+        this.relaxed = relaxed;
+    }
+
+    /**
+     * Rewrites the tree under root in place and returns the rules that fired, in the order they fired.
+     * root itself stays the root: if it is rewritten away it takes over its replacement.
+     */
+    public List<Rule> rewrite(ComputationNode root) {
+        fired.clear();
+        shapes.clear();
+        ComputationNode result = simplify(root);
+        if (result != root) {
+            root.become(result);
+        }
+        return new ArrayList<>(fired);
+    }
+
+    private ComputationNode simplify(ComputationNode node) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) {
+            return node;
+        }
+        List<ComputationNode> children = node.getChildren();
+        List<ComputationNode> simplified = new ArrayList<>(children.size());
+        boolean changed = false;
+        for (ComputationNode child : children) {
+            ComputationNode s = simplify(child);
+            simplified.add(s);
+            changed |= s != child;
+        }
+        if (changed) {
+            node.replaceChildren(simplified);
+        }
+        return applyRules(node);
+    }
+
+    // children of node are already simplified; never returns a tree that contains node under a new parent
+    private ComputationNode applyRules(ComputationNode node) {
+        List<ComputationNode> children = node.getChildren();
+        switch (node.getNodeType()) {
+            case TRANSPOSE: {
+                ComputationNode x = children.get(0);
+                if (is(x, ComputationNodeType.TRANSPOSE)) {
+                    fired.add(Rule.DOUBLE_TRANSPOSE);
+                    return operand(x);
+                }
+                ComputationNode pushed = pushTransposeDown(x);
+                return pushed != null ? pushed : node;
+            }
+            case NEGATE: {
+                ComputationNode x = children.get(0);
+                if (is(x, ComputationNodeType.NEGATE)) {
+                    fired.add(Rule.DOUBLE_NEGATION);
+                    return operand(x);
+                }
+                if (relaxed && isBinary(x, ComputationNodeType.MULTIPLY)) {
+                    ComputationNode a = x.getChildren().get(0);
+                    ComputationNode b = x.getChildren().get(1);
+                    if (is(a, ComputationNodeType.NEGATE) || is(b, ComputationNodeType.NEGATE)) {
+                        fired.add(Rule.NEGATION_ABSORBED);
+                        return is(a, ComputationNodeType.NEGATE) ? binary(ComputationNodeType.MULTIPLY, operand(a), b)
+                                : binary(ComputationNodeType.MULTIPLY, a, operand(b));
+                    }
+                }
+                return node;
+            }
+            case MULTIPLY: {
+                if (!relaxed || children.size() != 2) {
+                    return node;
+                }
+                ComputationNode a = children.get(0);
+                ComputationNode b = children.get(1);
+                boolean negA = is(a, ComputationNodeType.NEGATE);
+                boolean negB = is(b, ComputationNodeType.NEGATE);
+                if (negA && negB) {
+                    fired.add(Rule.NEGATED_FACTORS);
+                    return binary(ComputationNodeType.MULTIPLY, operand(a), operand(b));
+                }
+                if ((negA || negB) && productIsSmaller(a, b, negA ? a : b)) {
+                    fired.add(Rule.SIGN_HOIST);
+                    return negate(binary(ComputationNodeType.MULTIPLY, negA ? operand(a) : a, negB ? operand(b) : b));
+                }
+                return node;
+            }
+            case ADD: {
+                if (relaxed && children.size() == 2 && is(children.get(0), ComputationNodeType.NEGATE) && is(children.get(1), ComputationNodeType.NEGATE)) {
+                    fired.add(Rule.NEGATED_SUM);
+                    return negate(binary(ComputationNodeType.ADD, operand(children.get(0)), operand(children.get(1))));
+                }
+                return node;
+            }
+            default:
+                return node;
+        }
+    }
+
+    // T(x) with the transpose moved onto the operands of x, or null if none of them is a transpose it would cancel
+    private ComputationNode pushTransposeDown(ComputationNode x) {
+        boolean pushable = (relaxed && isBinary(x, ComputationNodeType.MULTIPLY))
+                || isBinary(x, ComputationNodeType.ADD) || is(x, ComputationNodeType.NEGATE);
+        if (!pushable || x.getChildren().stream().noneMatch(c -> is(c, ComputationNodeType.TRANSPOSE))) {
+            return null;
+        }
+        fired.add(Rule.TRANSPOSE_PUSHDOWN);
+        List<ComputationNode> children = x.getChildren();
+        ComputationNode pushed;
+        if (x.getNodeType() == ComputationNodeType.MULTIPLY) {
+            pushed = binary(ComputationNodeType.MULTIPLY, transpose(children.get(1)), transpose(children.get(0)));
+        } else if (x.getNodeType() == ComputationNodeType.ADD) {
+            pushed = binary(ComputationNodeType.ADD, transpose(children.get(0)), transpose(children.get(1)));
+        } else {
+            pushed = negate(transpose(children.get(0)));
+        }
+        return applyRules(pushed);
+    }
+
+    // negating the product instead of the negated factor: only when that touches no more elements
+    private boolean productIsSmaller(ComputationNode a, ComputationNode b, ComputationNode negated) {
+        int[] sa = shapeOf(a);
+        int[] sb = shapeOf(b);
+        int[] sn = shapeOf(negated);
+        if (sa == null || sb == null || sn == null) {
+            return false;
+        }
+        return (long) sa[0] * sb[1] <= (long) sn[0] * sn[1];
+    }
+
+    // {rows, cols} of node, null if unknown or inconsistent; the engine reports mismatches itself
+    private int[] shapeOf(ComputationNode node) {
+        int[] cached = shapes.get(node);
+        if (cached != null || node.getNodeType() == ComputationNodeType.MATRIX) {
+            return cached != null ? cached : cache(node, MultiplyChainPlanner.leafShape(node));
+        }
+        List<ComputationNode> children = node.getChildren();
+        int[] first = shapeOf(children.get(0));
+        if (first == null) {
+            return null;
+        }
+        switch (node.getNodeType()) {
+            case NEGATE:
+            case ADD:
+                return cache(node, first);
+            case TRANSPOSE:
+                return cache(node, new int[]{first[1], first[0]});
+            case MULTIPLY: {
+                int[] last = shapeOf(children.get(children.size() - 1));
+                return last == null ? null : cache(node, new int[]{first[0], last[1]});
+            }
+            default:
+                return null;
+        }
+    }
+
+    private int[] cache(ComputationNode node, int[] shape) {
+        shapes.put(node, shape);
+        return shape;
+    }
+
+    // a new TRANSPOSE of node, simplified right away so a transpose of a transpose cancels
+    private ComputationNode transpose(ComputationNode node) {
+        return applyRules(new ComputationNode(ComputationNodeType.TRANSPOSE, new ArrayList<>(List.of(node))));
+    }
+
+    private static ComputationNode negate(ComputationNode node) {
+        return new ComputationNode(ComputationNodeType.NEGATE, new ArrayList<>(List.of(node)));
+    }
+
+    private static ComputationNode binary(ComputationNodeType type, ComputationNode a, ComputationNode b) {
+        return new ComputationNode(type, new ArrayList<>(List.of(a, b)));
+    }
+
+    private static ComputationNode operand(ComputationNode unary) {
+        return unary.getChildren().get(0);
+    }
+
+    private static boolean is(ComputationNode node, ComputationNodeType type) {
+        return node.getNodeType() == type && node.getChildren() != null && node.getChildren().size() == 1;
+    }
+
+    private static boolean isBinary(ComputationNode node, ComputationNodeType type) {
+        return node.getNodeType() == type && node.getChildren().size() == 2;
+    }
+}
@@ -1,5 +1,8 @@
 package parser;
 
+import memory.CsrMatrix;
+import memory.SharedMatrix;
+
 import java.util.List;
 
 public class ComputationNode {
@@ -7,6 +10,8 @@ public class ComputationNode {
     private ComputationNodeType nodeType;
     private List<ComputationNode> children = null;
     private double[][] matrix = null; // only used for MATRIX nodes
+    private SharedMatrix sharedMatrix = null; // result handed over by the engine, materialized on demand
+    private CsrMatrix sparseMatrix = null; // sparse operand or result, materialized on demand
 
     public ComputationNode(String operatorStr, List<ComputationNode> children) throws IllegalArgumentException {
         this.nodeType = mapOperator(operatorStr);
@@ -38,6 +43,16 @@ public class ComputationNode {
         this.matrix = matrix;
     }
 
+    public ComputationNode(SharedMatrix matrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.sharedMatrix = matrix;
+    }
+
+    public ComputationNode(CsrMatrix matrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.sparseMatrix = matrix;
+    }
+
     public ComputationNodeType getNodeType() {
         return nodeType;
     }
@@ -81,6 +96,20 @@ public class ComputationNode {
         }
     }
 
+    // used by tree rewrites in this package, e.g. MultiplyChainPlanner
+    void replaceChildren(List<ComputationNode> children) {
+        this.children = children;
+    }
+
+    // turns this node into other, for rewrites that replace the root the caller holds on to
+    void become(ComputationNode other) {
+        this.nodeType = other.nodeType;
+        this.children = other.children;
+        this.matrix = other.matrix;
+        this.sharedMatrix = other.sharedMatrix;
+        this.sparseMatrix = other.sparseMatrix;
+    }
+
     /**
      * Resolves this node by setting its type to MATRIX and storing the computed matrix.
      */
@@ -88,9 +117,56 @@ public class ComputationNode {
         this.nodeType = ComputationNodeType.MATRIX;
         this.children = null;
         this.matrix = matrix;
+        this.sharedMatrix = null;
+        this.sparseMatrix = null;
+    }
+
+    /**
+     * Resolves this node with a matrix that still lives in engine storage.
+     * The node takes ownership: nothing is copied until someone asks for getMatrix().
+     */
+    public void resolve(SharedMatrix sharedMatrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.children = null;
+        this.matrix = null;
+        this.sharedMatrix = sharedMatrix;
+        this.sparseMatrix = null;
+    }
+
+    /**
+     * Resolves this node with a matrix kept in sparse form.
+     */
+    public void resolve(CsrMatrix sparseMatrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.children = null;
+        this.matrix = null;
+        this.sharedMatrix = null;
+        this.sparseMatrix = sparseMatrix;
+    }
+
+    /**
+     * Returns the engine-side result of this node, or null if it only holds a double[][].
+     */
+    public SharedMatrix getSharedMatrix() {
+        return sharedMatrix;
+    }
+
+    /**
+     * Returns the sparse form of this node, or null if it is stored densely.
+     */
+    public CsrMatrix getSparseMatrix() {
+        return sparseMatrix;
     }
 
     public double[][] getMatrix() {
+        if (matrix == null && sharedMatrix != null) {
+            matrix = sharedMatrix.readRowMajor();
+            sharedMatrix = null;
+        }
+        if (matrix == null && sparseMatrix != null) {
+            matrix = sparseMatrix.toDense();
+            sparseMatrix = null;
+        }
         if (matrix == null) {
             throw new IllegalStateException("This node does not contain a matrix.");
         }
@@ -0,0 +1,119 @@
+package parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Ready queue over the operator nodes of a computation tree, built in one post-order pass.
+ * Every node knows its parent and how many of its children are still unresolved, so reporting
+ * a resolved node costs O(1) instead of walking the tree again to find the next piece of work.
+ * Every node becomes ready only after all of its children were resolved. The nodes that are ready
+ * up front come out in left-to-right post-order; a parent is queued behind them when its last child
+ * is resolved. This is not findResolvable's order: in +(-(-(a)), -(b)) the plan yields -(b) before
+ * the outer -(...) of the left operand, findResolvable would finish the left operand first.
+ */
+public class ExecutionPlan {
+
+    private final IdentityHashMap<ComputationNode, Integer> index = new IdentityHashMap<>();
+    private final ComputationNode[] nodes; // operator nodes in post-order
+    private final int[] parent; // index of the parent, -1 for the root
+    private final int[] pending; // children that are not resolved yet
+    private final ArrayDeque<ComputationNode> ready = new ArrayDeque<>();
+    private int remaining;
+
+    public ExecutionPlan(ComputationNode root) {
+        List<ComputationNode> order = postOrder(root);
+        nodes = order.toArray(new ComputationNode[0]);
+        parent = new int[nodes.length];
+        pending = new int[nodes.length];
+        remaining = nodes.length;
+
+        for (int i = 0; i < nodes.length; i++) {
+            index.put(nodes[i], i);
+            parent[i] = -1;
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            for (ComputationNode child : nodes[i].getChildren()) {
+                if (child.getNodeType() != ComputationNodeType.MATRIX) {
+                    parent[index.get(child)] = i;
+                    pending[i]++;
+                }
+            }
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            if (pending[i] == 0) {
+                ready.add(nodes[i]);
+            }
+        }
+    }
+
+    // operator nodes, children before parents and left subtrees before right ones, without recursion
+    private static List<ComputationNode> postOrder(ComputationNode root) {
+        List<ComputationNode> reversed = new ArrayList<>();
+        ArrayDeque<ComputationNode> stack = new ArrayDeque<>();
+        if (root.getNodeType() != ComputationNodeType.MATRIX) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            ComputationNode node = stack.pop();
+            reversed.add(node);
+            for (ComputationNode child : node.getChildren()) {
+                if (child.getNodeType() != ComputationNodeType.MATRIX) {
+                    stack.push(child);
+                }
+            }
+        }
+        List<ComputationNode> order = new ArrayList<>(reversed.size());
+        for (int i = reversed.size() - 1; i >= 0; i--) {
+            order.add(reversed.get(i));
+        }
+        return order;
+    }
+
+    /**
+     * Returns the next node whose children are all matrices, or null if none is ready right now.
+     */
+    public ComputationNode nextReady() {
+        return ready.poll();
+    }
+
+    /**
+     * Records that node was resolved; its parent becomes ready once this was its last pending child.
+     */
+    public void resolved(ComputationNode node) {
+        int i = indexOf(node);
+        remaining--;
+        int p = parent[i];
+        if (p >= 0 && --pending[p] == 0) {
+            ready.add(nodes[p]);
+        }
+    }
+
+    /**
+     * Position of node in the plan's post-order: children come before their parents, left subtrees
+     * before right ones.
+     */
+    public int indexOf(ComputationNode node) {
+        Integer i = index.get(node);
+        if (i == null) {
+            throw new IllegalArgumentException("node is not part of this plan");
+        }
+        return i;
+    }
+
+    /**
+     * True once every operator node of the tree was resolved.
+     */
+    public boolean isDone() {
+        return remaining == 0;
+    }
+
+    /**
+     * Number of operator nodes in the tree.
+     */
+    public int size() {
+        return nodes.length;
+    }
+}
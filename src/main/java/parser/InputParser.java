@@ -1,68 +1,193 @@
 package parser;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import memory.BinaryMatrixFile;
+import memory.CsrMatrix;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.*;
 
 public class InputParser {
 
-    private final ObjectMapper mapper = new ObjectMapper();
+    // initial capacity of the first row of a matrix, before its width is known
+    private static final int FIRST_ROW_CAPACITY = 64;
 
+    private final JsonFactory factory = new JsonFactory();
+    private final double sparseDensity;
+
+    /**
+     * Keeps every matrix dense.
+     */
+    public InputParser() {
+        this(-1);
+    }
+
+    /**
+     * sparseDensity: matrices of at least CsrMatrix.MIN_SPARSE_ELEMENTS elements with at most this fraction
+     * of non-zero elements are stored as CSR, a negative value keeps every matrix dense.
+     * CSR is opt-in because its kernels skip the zeros they do not store: a -0.0 element comes back as 0.0,
+     * and 0 * Inf or 0 * NaN never happen, so they do not turn into NaN the way the dense kernels would.
+     */
+    public InputParser(double sparseDensity) {
+        this.sparseDensity = sparseDensity;
+    }
+
+    /**
+     * Parses the input file with Jackson's streaming token API.
+     * Matrix elements are read straight into double rows, no tree model is ever built.
+     */
     public ComputationNode parse(String inputPath) throws ParseException {
-        try {
-            File inputFile = new File(inputPath);
-            JsonNode rootJsonNode = mapper.readTree(inputFile);
-            ComputationNode root = parseJsonNode(rootJsonNode);
+        File inputFile = new File(inputPath);
+        try (JsonParser parser = factory.createParser(inputFile)) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                throw new ParseException("Input JSON file is empty.", 0);
+            }
+            Path baseDir = inputFile.getAbsoluteFile().toPath().getParent();
+            ComputationNode root = parseNode(parser, baseDir);
             return root;
         } catch (IOException e) {
             throw new ParseException("Failed to read the input JSON file: " + e.getMessage(), 0);
         }
     }
 
-    private ComputationNode parseJsonNode(JsonNode jsonNode) throws ParseException {
-        if (jsonNode.has("operator") && jsonNode.has("operands")) {
-            String operatorStr = jsonNode.get("operator").asText();
-            ArrayNode operandJsonNodes = (ArrayNode) jsonNode.get("operands");
-            List<ComputationNode> operands = new ArrayList<>();
-            for (int i = 0; i < operandJsonNodes.size(); i++) {
-                operands.add(parseJsonNode(operandJsonNodes.get(i)));
-            }
-            return new ComputationNode(operatorStr, operands);
+    // parser is positioned on the first token of a node
+    private ComputationNode parseNode(JsonParser parser, Path baseDir) throws IOException, ParseException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return parseObject(parser, baseDir);
+        }
+        else if (token == JsonToken.START_ARRAY) {
+            return parseMatrix(parser);
         }
-        else if (jsonNode.isArray()) {
-            if (jsonNode.size() == 0) {
-                throw new ParseException("Empty array cannot be parsed as DataNode.", 0);
+        else { throw new ParseException("Invalid node structure: " + parser.getText() + " at " + location(parser), 0); }
+    }
+
+    // {"operator": "...", "operands": [...]} in any key order, other keys are ignored,
+    // or {"file": "a.mat"}: a binary matrix leaf, relative paths are resolved against the input file
+    private ComputationNode parseObject(JsonParser parser, Path baseDir) throws IOException, ParseException {
+        String operatorStr = null;
+        String file = null;
+        List<ComputationNode> operands = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("operator")) {
+                operatorStr = parser.getValueAsString();
+                if (operatorStr == null) {
+                    throw new ParseException("Invalid operator at " + location(parser), 0);
+                }
+            }
+            else if (field.equals("operands")) {
+                if (value != JsonToken.START_ARRAY) {
+                    throw new ParseException("Operands must be an array at " + location(parser), 0);
+                }
+                operands = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    operands.add(parseNode(parser, baseDir));
+                }
             }
-            // Check if it's a vector (1D array)
-            if (jsonNode.get(0).isNumber()) {
-                throw new ParseException("Vectors (1D arrays) are not supported as standalone nodes.", 0);
+            else if (field.equals("file")) {
+                file = parser.getValueAsString();
+                if (file == null) {
+                    throw new ParseException("Invalid file reference at " + location(parser), 0);
+                }
             }
-            // Otherwise, it's a matrix (2D array)
             else {
-                double[][] matrix = new double[jsonNode.size()][];
-                int width = jsonNode.get(0).size();
-                for (int i = 0; i < jsonNode.size(); i++) {
-                    JsonNode rowJsonNode = jsonNode.get(i);
-                    if (rowJsonNode.size() != width) {
-                        throw new ParseException("Inconsistent row sizes in matrix.", 0);
-                    }
-                    if (!rowJsonNode.isArray()) {
-                        throw new ParseException("Invalid matrix row: " + rowJsonNode.toString(), 0);
-                    }
-                    matrix[i] = new double[rowJsonNode.size()];
-                    for (int j = 0; j < rowJsonNode.size(); j++) {
-                        matrix[i][j] = rowJsonNode.get(j).asDouble();
-                    }
+                parser.skipChildren();
+            }
+        }
+        if (file != null) {
+            if (operatorStr != null || operands != null) {
+                throw new ParseException("Invalid node structure: \"file\" cannot be combined with an operator (at " + location(parser) + ")", 0);
+            }
+            return readBinaryLeaf(baseDir.resolve(file));
+        }
+        if (operatorStr == null || operands == null) {
+            throw new ParseException("Invalid node structure: an object needs both \"operator\" and \"operands\" (at " + location(parser) + ")", 0);
+        }
+        return new ComputationNode(operatorStr, operands);
+    }
+
+    // [[...], [...], ...]: the first row fixes the width, every later row is read into a preallocated array
+    private ComputationNode parseMatrix(JsonParser parser) throws IOException, ParseException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            throw new ParseException("Empty array cannot be parsed as DataNode.", 0);
+        }
+        // Check if it's a vector (1D array)
+        if (token.isNumeric()) {
+            throw new ParseException("Vectors (1D arrays) are not supported as standalone nodes.", 0);
+        }
+
+        // Otherwise, it's a matrix (2D array)
+        List<double[]> rows = new ArrayList<>();
+        double[] firstRow = readFirstRow(parser);
+        int width = firstRow.length;
+        rows.add(firstRow);
+
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_ARRAY) {
+                throw new ParseException("Invalid matrix row: " + parser.getText() + " at " + location(parser), 0);
+            }
+            double[] row = new double[width];
+            int j = 0;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (j == width) {
+                    throw new ParseException("Inconsistent row sizes in matrix.", 0);
                 }
-                return new ComputationNode(matrix);
+                row[j++] = readElement(parser, token);
+            }
+            if (j != width) {
+                throw new ParseException("Inconsistent row sizes in matrix.", 0);
+            }
+            rows.add(row);
+        }
+        double[][] matrix = rows.toArray(new double[0][]);
+        // measured density decides the storage, mostly-zero matrices never reach the engine as dense rows
+        boolean candidate = sparseDensity >= 0 && (long) matrix.length * width >= CsrMatrix.MIN_SPARSE_ELEMENTS;
+        CsrMatrix sparse = candidate ? CsrMatrix.fromDenseIfSparse(matrix, sparseDensity) : null;
+        return sparse != null ? new ComputationNode(sparse) : new ComputationNode(matrix);
+    }
+
+    private ComputationNode readBinaryLeaf(Path path) throws ParseException {
+        try {
+            return new ComputationNode(BinaryMatrixFile.read(path));
+        } catch (IOException e) {
+            throw new ParseException("Failed to read matrix file " + path + ": " + e.getMessage(), 0);
+        }
+    }
+
+    private double[] readFirstRow(JsonParser parser) throws IOException, ParseException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new ParseException("Invalid matrix row: " + parser.getText() + " at " + location(parser), 0);
+        }
+        double[] row = new double[FIRST_ROW_CAPACITY];
+        int j = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (j == row.length) {
+                row = Arrays.copyOf(row, row.length * 2);
             }
+            row[j++] = readElement(parser, token);
         }
-        else { throw new ParseException("Invalid node structure: " + jsonNode.toString(), 0); }
+        return Arrays.copyOf(row, j);
+    }
+
+    private double readElement(JsonParser parser, JsonToken token) throws IOException, ParseException {
+        if (!token.isNumeric()) {
+            throw new ParseException("Invalid matrix element: " + parser.getText() + " at " + location(parser), 0);
+        }
+        return parser.getDoubleValue();
+    }
+
+    private static String location(JsonParser parser) {
+        return "line " + parser.currentLocation().getLineNr() + ", column " + parser.currentLocation().getColumnNr();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package parser;
+
+import memory.CsrMatrix;
+import memory.SharedMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the cheapest parenthesization of every n-ary MULTIPLY in a computation tree.
+ * Shapes are read from the leaves and propagated up through the operators, then the classic
+ * matrix-chain dynamic program finds the split points. A chain is only rewritten when its best
+ * order is strictly cheaper than the left-associative one associativeNesting would produce,
+ * so ties keep the original evaluation order. ADD chains are left alone.
+ * Must run before associativeNesting, while chains are still n-ary.
+ */
+public class MultiplyChainPlanner {
+
+    /**
+     * Rewrites every MULTIPLY chain under root into its cheapest binary nesting.
+     * Returns the estimated number of floating point operations saved (one multiply-add counts as 2).
+     */
+    public long optimize(ComputationNode root) {
+        long[] saved = new long[1];
+        shapeOf(root, saved);
+        return saved[0];
+    }
+
+    // returns {rows, cols} of node (null if unknown or inconsistent), rewriting chains on the way up
+    private int[] shapeOf(ComputationNode node, long[] saved) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) {
+            return leafShape(node);
+        }
+
+        List<ComputationNode> children = node.getChildren();
+        int[][] shapes = new int[children.size()][];
+        boolean known = true;
+        for (int i = 0; i < children.size(); i++) {
+            shapes[i] = shapeOf(children.get(i), saved);
+            known &= shapes[i] != null;
+        }
+        if (!known || children.isEmpty()) {
+            return null;
+        }
+
+        switch (node.getNodeType()) {
+            case ADD:
+            case NEGATE:
+                return shapes[0];
+            case TRANSPOSE:
+                return new int[]{shapes[0][1], shapes[0][0]};
+            case MULTIPLY:
+                for (int i = 1; i < shapes.length; i++) {
+                    if (shapes[i - 1][1] != shapes[i][0]) {
+                        return null; // the engine reports the mismatch when it gets there
+                    }
+                }
+                if (children.size() > 2) {
+                    saved[0] += reorder(node, shapes);
+                }
+                return new int[]{shapes[0][0], shapes[shapes.length - 1][1]};
+            default:
+                return null;
+        }
+    }
+
+    // {rows, cols} of a MATRIX node in whichever form it is stored
+    static int[] leafShape(ComputationNode node) {
+        SharedMatrix shared = node.getSharedMatrix();
+        if (shared != null) {
+            return new int[]{shared.rows(), shared.cols()};
+        }
+        CsrMatrix sparse = node.getSparseMatrix();
+        if (sparse != null) {
+            return new int[]{sparse.rows(), sparse.cols()};
+        }
+        double[][] m = node.getMatrix();
+        return new int[]{m.length, m.length == 0 ? 0 : m[0].length};
+    }
+
+    // runs the matrix-chain DP over the children of node and rewrites it if that saves work
+    private long reorder(ComputationNode node, int[][] shapes) {
+        int n = shapes.length;
+        long[] dims = new long[n + 1];
+        dims[0] = shapes[0][0];
+        for (int i = 0; i < n; i++) {
+            dims[i + 1] = shapes[i][1];
+        }
+
+        // cost[i][j] = fewest scalar multiply-adds for children i..j, split[i][j] = where to cut
+        long[][] cost = new long[n][n];
+        int[][] split = new int[n][n];
+        for (int len = 2; len <= n; len++) {
+            for (int i = 0; i + len - 1 < n; i++) {
+                int j = i + len - 1;
+                cost[i][j] = Long.MAX_VALUE;
+                // scanning cuts from the right keeps the left-associative cut on ties
+                for (int k = j - 1; k >= i; k--) {
+                    long c = cost[i][k] + cost[k + 1][j] + dims[i] * dims[k + 1] * dims[j + 1];
+                    if (c < cost[i][j]) {
+                        cost[i][j] = c;
+                        split[i][j] = k;
+                    }
+                }
+            }
+        }
+
+        long leftAssociative = 0;
+        for (int k = 1; k < n; k++) {
+            leftAssociative += dims[0] * dims[k] * dims[k + 1];
+        }
+        long best = cost[0][n - 1];
+        if (best >= leftAssociative) {
+            return 0;
+        }
+
+        List<ComputationNode> children = node.getChildren();
+        int k = split[0][n - 1];
+        List<ComputationNode> nested = new ArrayList<>(2);
+        nested.add(build(children, split, 0, k));
+        nested.add(build(children, split, k + 1, n - 1));
+        node.replaceChildren(nested);
+        return 2 * (leftAssociative - best);
+    }
+
+    private ComputationNode build(List<ComputationNode> children, int[][] split, int i, int j) {
+        if (i == j) {
+            return children.get(i);
+        }
+        int k = split[i][j];
+        List<ComputationNode> pair = new ArrayList<>(2);
+        pair.add(build(children, split, i, k));
+        pair.add(build(children, split, k + 1, j));
+        return new ComputationNode(ComputationNodeType.MULTIPLY, pair);
+    }
+}
@@ -1,34 +1,74 @@
 package parser;
 
-import java.io.File;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
-public class OutputWriter {
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 
-    private static final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+public class OutputWriter {
 
-    public static class ResultMatrix {
-        public double[][] result;
-        public ResultMatrix(double[][] result) { this.result = result; }
-    }
+    // bytes buffered in front of the file channel, rows are streamed through it
+    private static final int BUFFER_SIZE = 1 << 20;
 
-    public static class ErrorMessage {
-        public String error;
-        public ErrorMessage(String error) { this.error = error; }
-    }
+    private static final JsonFactory factory = new JsonFactory();
 
     public OutputWriter() {}
 
     public static void write(double[][] matrix, String filePath) throws IOException {
-        File file = new File(filePath);
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ResultMatrix(matrix));
+        write(matrix, filePath, false);
+    }
+
+    /**
+     * Streams {"result": [[...], ...]} to filePath one row at a time.
+     * compact drops all whitespace; otherwise the layout matches Jackson's default pretty printer.
+     */
+    public static void write(double[][] matrix, String filePath, boolean compact) throws IOException {
+        try (OutputStream out = open(filePath);
+             JsonGenerator gen = createGenerator(out, compact)) {
+            gen.writeStartObject();
+            gen.writeFieldName("result");
+            gen.writeStartArray();
+            for (double[] row : matrix) {
+                gen.writeArray(row, 0, row.length);
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
     }
 
     public static void write(String error, String filePath) throws IOException {
-        File file = new File(filePath);
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ErrorMessage(error));
+        write(error, filePath, false);
+    }
+
+    public static void write(String error, String filePath, boolean compact) throws IOException {
+        try (OutputStream out = open(filePath);
+             JsonGenerator gen = createGenerator(out, compact)) {
+            gen.writeStartObject();
+            gen.writeStringField("error", error);
+            gen.writeEndObject();
+        }
+    }
+
+    private static OutputStream open(String filePath) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+    }
+
+    private static JsonGenerator createGenerator(OutputStream out, boolean compact) throws IOException {
+        JsonGenerator gen = factory.createGenerator(out, JsonEncoding.UTF8);
+        if (!compact) {
+            gen.setPrettyPrinter(new DefaultPrettyPrinter());
+        }
+        return gen;
     }
 
 }
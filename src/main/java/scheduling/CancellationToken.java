@@ -0,0 +1,110 @@
+package scheduling;
+
+/**
+ * Cooperative cancellation for one job: cancelled explicitly, or by passing its deadline.
+ *
+ * Nothing is interrupted. Tasks check the token before they start, and long kernels check the
+ * token of the task they run for at block boundaries through checkCurrent(), throwing
+ * JobCancelledException out of the kernel.
+ */
+public final class CancellationToken {
+
+    /** A token that is never cancelled. */
+    public static final CancellationToken NONE = new CancellationToken(0, false);
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private final long timeoutMillis;
+    private final long deadlineNanos;
+    private final boolean cancellable;
+    private final CancellationToken parent; // cancels this one too, null for a top-level token
+    private volatile String reason;
+
+    private CancellationToken(long timeoutMillis, boolean cancellable) {
+        this(timeoutMillis, cancellable, null);
+    }
+
+    private CancellationToken(long timeoutMillis, boolean cancellable, CancellationToken parent) {
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000L;
+        this.cancellable = cancellable;
+        this.parent = parent;
+    }
+
+    /** A token without a deadline, cancelled only through cancel(). */
+    public static CancellationToken create() {
+        return new CancellationToken(0, true);
+    }
+
+    /** A token that cancels itself timeoutMillis from now. */
+    public static CancellationToken withTimeout(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        return new CancellationToken(timeoutMillis, true);
+    }
+
+    /**
+     * A token that is cancelled whenever this one is, and that can also be cancelled on its own without
+     * touching this one. The engine runs every job on a child, so a failing node can stop its siblings
+     * even when the caller passed NONE.
+     */
+    public CancellationToken child() {
+        return new CancellationToken(0, true, this);
+    }
+
+    public void cancel(String reason) {
+        if (cancellable && this.reason == null) {
+            this.reason = reason == null ? "cancelled" : reason;
+        }
+    }
+
+    public boolean isCancelled() {
+        if (reason != null) {
+            return true;
+        }
+        if (timeoutMillis > 0 && System.nanoTime() - deadlineNanos >= 0) {
+            cancel("timed out after " + timeoutMillis + " ms");
+            return true;
+        }
+        if (parent != null && parent.isCancelled()) {
+            cancel(parent.reason);
+            return true;
+        }
+        return false;
+    }
+
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new JobCancelledException("Job " + reason);
+        }
+    }
+
+    /**
+     * Runs task with this token as the current one of the calling thread, so kernels deep
+     * inside it can call checkCurrent() without the token being passed down.
+     */
+    public void runWith(Runnable task) {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            task.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Throws JobCancelledException if the task running on this thread belongs to a cancelled job.
+     */
+    public static void checkCurrent() {
+        CancellationToken token = CURRENT.get();
+        if (token != null) {
+            token.throwIfCancelled();
+        }
+    }
+}
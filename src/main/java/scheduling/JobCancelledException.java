@@ -0,0 +1,13 @@
+package scheduling;
+
+/**
+ * Thrown out of a task or kernel whose job was cancelled or ran past its deadline.
+ */
+public class JobCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public JobCancelledException(String message) {
+        super(message);
+    }
+}
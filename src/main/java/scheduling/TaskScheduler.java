@@ -0,0 +1,40 @@
+package scheduling;
+
+import java.util.List;
+
+/**
+ * What LinearAlgebraEngine needs from a thread pool.
+ * TiredExecutor hands every task to the least tired idle worker, WorkStealingExecutor queues
+ * tasks on per-worker deques and lets idle workers steal.
+ */
+public interface TaskScheduler {
+
+    /**
+     * Schedules task. Tasks that throw must not kill the worker that runs them.
+     */
+    void submit(Runnable task);
+
+    /**
+     * Submits every task and returns once all tasks submitted to this scheduler have finished.
+     */
+    void submitAll(Iterable<Runnable> tasks);
+
+    /**
+     * Waits for the submitted tasks to finish, then stops the workers.
+     */
+    void shutdown() throws InterruptedException;
+
+    /**
+     * Number of worker threads, used to size task chunks.
+     */
+    int getNumThreads();
+
+    String getWorkerReport();
+
+    /**
+     * Per-worker counters for metrics reports, empty for schedulers without long-lived workers.
+     */
+    default List<WorkerStats> getWorkerStats() {
+        return List.of();
+    }
+}
@@ -1,18 +1,50 @@
 package scheduling;
 
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class TiredExecutor {
+public class TiredExecutor implements TaskScheduler {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
 
     private final TiredThread[] workers;
     private final PriorityBlockingQueue<TiredThread> idleMinHeap = new PriorityBlockingQueue<>();
     private final AtomicInteger inFlight = new AtomicInteger(0);
 
+    // submitted tasks wait here until dispatch() pairs them with the least tired idle worker
+    private final BlockingQueue<PendingTask> pending;
+    private final Object dispatchLock = new Object();
+
+    // counters for sizing the queue
+    private final AtomicInteger maxQueueDepth = new AtomicInteger(0);
+    private final AtomicLong dispatched = new AtomicLong(0);
+    private final AtomicLong queueWaitNanos = new AtomicLong(0);
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0); // trySubmit calls that found the queue full
+    private final AtomicLong blockedSubmits = new AtomicLong(0); // submit calls that had to wait for room
+    private final AtomicLong blockedNanos = new AtomicLong(0);
+
+    private record PendingTask(Runnable task, long enqueuedAt) {}
+
     public TiredExecutor(int numThreads) {
+        this(numThreads, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * queueCapacity bounds the number of tasks waiting for a worker, submit blocks and
+     * trySubmit fails once it is reached.
+     */
+    public TiredExecutor(int numThreads, int queueCapacity) {
         // TODO
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
         this.workers = new TiredThread[numThreads];
 
         for (int i = 0; i < numThreads; i++) {
@@ -20,46 +52,100 @@ public class TiredExecutor {
             double fatigue = 0.5 + (1 / (double)numThreads) * i;
 
             TiredThread w = new TiredThread(i, fatigue);
+            w.setOnIdle(() -> workerIdle(w));
             workers[i] = w;
             idleMinHeap.add(w);
             w.start();
         }
     }
 
+    /**
+     * Queues task and returns without waiting for a worker.
+     * If the pending queue is full the caller is held back until a worker takes a task (backpressure).
+     */
+    @Override
     public void submit(Runnable task) {
         // TODO
         if (task == null) {
             throw new IllegalArgumentException("task is null");
         }
-        try 
-        {
-            final TiredThread worker = idleMinHeap.take();
-            inFlight.incrementAndGet();
+        inFlight.incrementAndGet();
+        if (!pending.offer(new PendingTask(task, System.nanoTime()))) {
+            blockedSubmits.incrementAndGet();
+            long start = System.nanoTime();
+            try
+            {
+                // stamped once it is in, the time spent blocked is counted separately
+                pending.put(new PendingTask(task, System.nanoTime()));
+            }
+            catch (InterruptedException e)
+            {
+                taskDone();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("submit interrupted", e);
+            }
+            finally
+            {
+                blockedNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+        maxQueueDepth.accumulateAndGet(pending.size(), Math::max);
+        dispatch();
+    }
 
-            Runnable wrapped = () -> {
-                try
-                {
-                    task.run();
-                } 
-                finally 
-                {
-                    inFlight.decrementAndGet();
-                    idleMinHeap.add(worker); // reinsert after fatigue/timeUsed updated
-                    synchronized (TiredExecutor.this) 
-                    {
-                        TiredExecutor.this.notifyAll();
-                    }
-                }
-            };
+    /**
+     * Queues task if there is room and returns false, without queueing it, if the pending queue is full.
+     */
+    public boolean trySubmit(Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("task is null");
+        }
+        inFlight.incrementAndGet();
+        if (!pending.offer(new PendingTask(task, System.nanoTime()))) {
+            rejected.incrementAndGet();
+            taskDone();
+            return false;
+        }
+        maxQueueDepth.accumulateAndGet(pending.size(), Math::max);
+        dispatch();
+        return true;
+    }
+
+    // hands queued tasks to idle workers, least tired first, until one of the two runs out
+    private void dispatch() {
+        synchronized (dispatchLock) {
+            while (!pending.isEmpty() && !idleMinHeap.isEmpty()) {
+                TiredThread worker = idleMinHeap.poll();
+                PendingTask entry = pending.poll();
 
-            worker.newTask(wrapped);
+                long waited = System.nanoTime() - entry.enqueuedAt();
+                queueWaitNanos.addAndGet(waited);
+                maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+                dispatched.incrementAndGet();
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("submit interrupted", e);
+                worker.newTask(entry.task());
+            }
         }
     }
 
+    // runs on the worker after each task, when its timeUsed already counts it: the heap key is current
+    private void workerIdle(TiredThread worker) {
+        idleMinHeap.add(worker);
+        taskDone();
+        // the worker is idle again, give it the next queued task if there is one
+        dispatch();
+    }
+
+    private void taskDone() {
+        if (inFlight.decrementAndGet() == 0) {
+            synchronized (TiredExecutor.this)
+            {
+                TiredExecutor.this.notifyAll();
+            }
+        }
+    }
+
+    @Override
     public void submitAll(Iterable<Runnable> tasks) {
         // TODO: submit tasks one by one and wait until all finish
         for(Runnable task : tasks)
@@ -82,6 +168,7 @@ public class TiredExecutor {
         }
     }
 
+    @Override
     public void shutdown() throws InterruptedException {
         synchronized (this) {
             while (inFlight.get() != 0) 
@@ -97,8 +184,64 @@ public class TiredExecutor {
                 }
             }
         }
+        // nothing is running any more, every worker is parked on its handoff and takes the poison pill
+        for (TiredThread w : workers) {
+            w.shutdown();
+        }
+        for (TiredThread w : workers) {
+            w.join();
+        }
+    }
+
+    @Override
+    public int getNumThreads() {
+        return workers.length;
+    }
+
+    /** Tasks currently waiting for a worker. */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    public int getQueueCapacity() {
+        return pending.size() + pending.remainingCapacity();
+    }
+
+    /** Largest queue depth seen right after a submission. */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /** Tasks handed from the queue to a worker so far. */
+    public long getDispatchedCount() {
+        return dispatched.get();
     }
 
+    /** Sum over dispatched tasks of the time they spent queued. */
+    public long getTotalQueueWaitNanos() {
+        return queueWaitNanos.get();
+    }
+
+    public long getMaxQueueWaitNanos() {
+        return maxQueueWaitNanos.get();
+    }
+
+    /** submit calls that found the queue full and waited for room. */
+    public long getBlockedSubmits() {
+        return blockedSubmits.get();
+    }
+
+    /** Total time submit calls spent waiting for room. */
+    public long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+    /** trySubmit calls turned away because the queue was full. */
+    public long getRejectedSubmits() {
+        return rejected.get();
+    }
+
+    @Override
     public synchronized String getWorkerReport() 
     {
         StringBuilder sb = new StringBuilder();
@@ -108,21 +251,35 @@ public class TiredExecutor {
         .append(", idle=").append(idleMinHeap.size())
         .append(", total=").append(workers.length)
         .append("\n");
+        sb.append("queue depth=").append(getQueueDepth())
+        .append(" max=").append(getMaxQueueDepth())
+        .append(" capacity=").append(getQueueCapacity())
+        .append(", dispatched=").append(dispatched.get())
+        .append(", wait(ns) total=").append(getTotalQueueWaitNanos())
+        .append(" max=").append(getMaxQueueWaitNanos())
+        .append(", blocked submits=").append(getBlockedSubmits())
+        .append(" (").append(getBlockedNanos()).append("ns)")
+        .append(", rejected=").append(getRejectedSubmits())
+        .append("\n");
 
 
-        double minFatigue = Double.MAX_VALUE;
-        double maxFatigue = Double.MIN_VALUE;
+        double minFatigue = Double.POSITIVE_INFINITY;
+        double maxFatigue = Double.NEGATIVE_INFINITY;
 
         // print dettails for each worker thread
         for (TiredThread w : workers) 
         {
+            double fatigue = w.getFatigue();
+            minFatigue = Math.min(minFatigue, fatigue);
+            maxFatigue = Math.max(maxFatigue, fatigue);
+
             sb.append("Worker ")
             .append(w.getWorkerId())
             .append(" [").append(w.getName()).append("]")
             .append(" busy=").append(w.isBusy())
             .append(" used(ns)=").append(w.getTimeUsed())
             .append(" idle(ns)=").append(w.getTimeIdle())
-            .append(" Fatigue=").append(w.getFatigue())
+            .append(" Fatigue=").append(fatigue)
             .append("\n");
         }
 
@@ -137,4 +294,13 @@ public class TiredExecutor {
 
         return sb.toString();
     }
+
+    @Override
+    public List<WorkerStats> getWorkerStats() {
+        List<WorkerStats> stats = new ArrayList<>(workers.length);
+        for (TiredThread w : workers) {
+            stats.add(new WorkerStats(w.getWorkerId(), w.getName(), w.getTimeUsed(), w.getTimeIdle(), w.getFatigue()));
+        }
+        return stats;
+    }
 }
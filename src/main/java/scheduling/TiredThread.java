@@ -23,6 +23,8 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
     private final AtomicLong timeIdle = new AtomicLong(0); // Total time spent idle
     private final AtomicLong idleStartTime = new AtomicLong(0); // Timestamp when the worker became idle
 
+    private volatile Runnable onIdle = () -> {}; // run after every task, once timeUsed includes it
+
     public TiredThread(int id, double fatigueFactor) {
         this.id = id;
         this.fatigueFactor = fatigueFactor;
@@ -50,6 +52,14 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
         return timeIdle.get();
     }
 
+    /**
+     * Sets what this worker runs after each task, once its time and fatigue include that task.
+     * TiredExecutor puts the worker back into its idle heap from here, so the heap key is current.
+     */
+    void setOnIdle(Runnable onIdle) {
+        this.onIdle = onIdle;
+    }
+
     /**
      * Assign a task to this worker.
      * This method is non-blocking: if the worker is not ready to accept a task,
@@ -104,8 +114,10 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
             long startWork = System.nanoTime();
             try {
                 task.run();
-            } catch (RuntimeException e) {
-                e.printStackTrace(); // Prevent thread death on task failure
+            } catch (Throwable t) {
+                // Prevent thread death on task failure, an Error included: a dead worker never comes back
+                // to the idle heap and its task never counts as done, so submitAll and shutdown would hang
+                t.printStackTrace();
             } finally {
                 // updates fatigue and work
                 long duration = System.nanoTime() - startWork;
@@ -114,6 +126,7 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
                 // free
                 busy.set(false);
                 idleStartTime.set(System.nanoTime());
+                onIdle.run();
             }
         }
     }
@@ -0,0 +1,105 @@
+package scheduling;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every submitted task on its own virtual thread.
+ *
+ * A task that blocks (a page fault on a mapped file, a flush, a lock) parks its virtual thread
+ * and frees the carrier for the next task, where a TiredThread would sit on it. The CPU-bound
+ * kernels run on the JDK's carrier pool, whose size is the jdk.virtualThreadScheduler.parallelism
+ * system property (the number of processors by default); Main sets it from the thread count.
+ * parallelism here only sizes the task chunks.
+ */
+public class VirtualThreadExecutor implements TaskScheduler {
+
+    public static final String CARRIER_PARALLELISM_PROPERTY = "jdk.virtualThreadScheduler.parallelism";
+
+    private final int parallelism;
+    private final ThreadFactory factory = Thread.ofVirtual().name("VT-", 0).factory();
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger peakInFlight = new AtomicInteger(0);
+    private final AtomicLong started = new AtomicLong(0);
+    private final AtomicLong timeUsed = new AtomicLong(0);
+    private volatile boolean running = true;
+
+    public VirtualThreadExecutor(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void submit(Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("task is null");
+        }
+        if (!running) {
+            throw new IllegalStateException("executor is shut down");
+        }
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        started.incrementAndGet();
+        factory.newThread(() -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // same policy as the pooled workers
+            } finally {
+                timeUsed.addAndGet(System.nanoTime() - start);
+                if (inFlight.decrementAndGet() == 0) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+        }).start();
+    }
+
+    @Override
+    public void submitAll(Iterable<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            submit(task);
+        }
+        awaitIdle("submitAll");
+    }
+
+    // virtual threads end with their task, so there is nothing to stop
+    @Override
+    public void shutdown() {
+        running = false;
+        awaitIdle("shutdown");
+    }
+
+    private void awaitIdle(String caller) {
+        synchronized (this) {
+            while (inFlight.get() != 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(caller + " interrupted", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getNumThreads() {
+        return parallelism;
+    }
+
+    @Override
+    public synchronized String getWorkerReport() {
+        return "=== Worker Report ===\n"
+                + "virtual threads started=" + started.get()
+                + ", inFlight=" + inFlight.get()
+                + ", peak inFlight=" + peakInFlight.get()
+                + ", carriers=" + System.getProperty(CARRIER_PARALLELISM_PROPERTY, String.valueOf(Runtime.getRuntime().availableProcessors()))
+                + ", used(ns)=" + timeUsed.get()
+                + "\n";
+    }
+}
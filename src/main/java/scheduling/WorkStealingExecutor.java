@@ -0,0 +1,224 @@
+package scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Work-stealing alternative to TiredExecutor.
+ *
+ * Every worker owns a deque. Outside submissions are spread round robin over the deques and
+ * tasks submitted by a worker go to its own deque, so submit never waits for a worker.
+ * A worker takes from the tail of its own deque (most recent first, warm in cache) and when
+ * that is empty steals from the head of the others, starting at a random victim.
+ * Workers with nothing to do sleep until the next submission.
+ */
+public class WorkStealingExecutor implements TaskScheduler {
+
+    private final Worker[] workers;
+    private final AtomicInteger inFlight = new AtomicInteger(0); // submitted and not finished
+    private final AtomicInteger queued = new AtomicInteger(0); // sitting in some deque, or about to be
+    private final AtomicInteger nextDeque = new AtomicInteger(0);
+    private final Object idleLock = new Object();
+    private int sleeping = 0; // guarded by idleLock
+    private volatile boolean running = true;
+    private final long startedAt = System.nanoTime();
+
+    public WorkStealingExecutor(int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("numThreads must be positive");
+        }
+        this.workers = new Worker[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker w : workers) {
+            w.start();
+        }
+    }
+
+    @Override
+    public void submit(Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("task is null");
+        }
+        if (!running) {
+            throw new IllegalStateException("executor is shut down");
+        }
+        inFlight.incrementAndGet();
+
+        Thread current = Thread.currentThread();
+        Worker target;
+        if (current instanceof Worker && ((Worker) current).owner() == this) {
+            target = (Worker) current;
+        } else {
+            target = workers[Math.floorMod(nextDeque.getAndIncrement(), workers.length)];
+        }
+        // raised before the task is published, so a worker that polls it right away cannot take queued below 0;
+        // until addLast a worker may see queued > 0 and an empty deque, it then retries instead of sleeping
+        queued.incrementAndGet();
+        target.deque.addLast(task);
+
+        // a worker only sleeps after seeing queued at 0 under idleLock, so it either sees this task or is notified
+        synchronized (idleLock) {
+            if (sleeping > 0) {
+                idleLock.notify();
+            }
+        }
+    }
+
+    @Override
+    public void submitAll(Iterable<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            submit(task);
+        }
+        awaitIdle("submitAll");
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        awaitIdle("shutdown");
+        running = false;
+        synchronized (idleLock) {
+            idleLock.notifyAll();
+        }
+        for (Worker w : workers) {
+            w.join();
+        }
+    }
+
+    private void awaitIdle(String caller) {
+        synchronized (this) {
+            while (inFlight.get() != 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(caller + " interrupted", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getNumThreads() {
+        return workers.length;
+    }
+
+    @Override
+    public synchronized String getWorkerReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Worker Report ===\n");
+        sb.append("inFlight=").append(inFlight.get())
+          .append(", queued=").append(queued.get())
+          .append(", total=").append(workers.length)
+          .append("\n");
+        for (Worker w : workers) {
+            sb.append("Worker ").append(w.id)
+              .append(" [").append(w.getName()).append("]")
+              .append(" executed=").append(w.executed.get())
+              .append(" stolen=").append(w.stolen.get())
+              .append(" deque=").append(w.deque.size())
+              .append(" used(ns)=").append(w.timeUsed.get())
+              .append("\n");
+        }
+        return sb.toString();
+    }
+
+    // workers have no fatigue factor, their busy time stands in for it; idle is the rest of their lifetime
+    @Override
+    public List<WorkerStats> getWorkerStats() {
+        long alive = System.nanoTime() - startedAt;
+        List<WorkerStats> stats = new ArrayList<>(workers.length);
+        for (Worker w : workers) {
+            long used = w.timeUsed.get();
+            stats.add(new WorkerStats(w.id, w.getName(), used, Math.max(0, alive - used), used));
+        }
+        return stats;
+    }
+
+    private final class Worker extends Thread {
+
+        private final int id;
+        private final ConcurrentLinkedDeque<Runnable> deque = new ConcurrentLinkedDeque<>();
+        private final AtomicLong executed = new AtomicLong(0);
+        private final AtomicLong stolen = new AtomicLong(0);
+        private final AtomicLong timeUsed = new AtomicLong(0);
+
+        Worker(int id) {
+            this.id = id;
+            setName("WS-" + id);
+        }
+
+        WorkStealingExecutor owner() {
+            return WorkStealingExecutor.this;
+        }
+
+        @Override
+        public void run() {
+            while (running || queued.get() > 0) {
+                Runnable task = deque.pollLast();
+                if (task == null) {
+                    task = steal();
+                }
+                if (task == null) {
+                    sleep();
+                    continue;
+                }
+                queued.decrementAndGet();
+
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace(); // Prevent thread death on task failure
+                } finally {
+                    timeUsed.addAndGet(System.nanoTime() - start);
+                    executed.incrementAndGet();
+                    if (inFlight.decrementAndGet() == 0) {
+                        synchronized (WorkStealingExecutor.this) {
+                            WorkStealingExecutor.this.notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+
+        // scans the other deques once, starting at a random victim
+        private Runnable steal() {
+            int n = workers.length;
+            int start = ThreadLocalRandom.current().nextInt(n);
+            for (int k = 0; k < n; k++) {
+                Worker victim = workers[(start + k) % n];
+                if (victim == this) {
+                    continue;
+                }
+                Runnable task = victim.deque.pollFirst();
+                if (task != null) {
+                    stolen.incrementAndGet();
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        private void sleep() {
+            synchronized (idleLock) {
+                if (queued.get() != 0 || !running) {
+                    return;
+                }
+                sleeping++;
+                try {
+                    idleLock.wait();
+                } catch (InterruptedException e) {
+                    // only shutdown stops a worker
+                } finally {
+                    sleeping--;
+                }
+            }
+        }
+    }
+}
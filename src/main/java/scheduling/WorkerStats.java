@@ -0,0 +1,30 @@
+package scheduling;
+
+import java.util.List;
+
+/**
+ * Cumulative counters of one worker thread since its scheduler started.
+ * fatigue is the value the scheduler balances on, for schedulers without one it is the busy time.
+ */
+public record WorkerStats(int id, String name, long usedNanos, long idleNanos, double fatigue) {
+
+    /** Fraction of the worker's lifetime spent running tasks. */
+    public double utilization() {
+        long total = usedNanos + idleNanos;
+        return total == 0 ? 0.0 : (double) usedNanos / total;
+    }
+
+    /** Most tired worker minus least tired one, 0 for fewer than two workers. */
+    public static double fatigueSpread(List<WorkerStats> workers) {
+        if (workers.isEmpty()) {
+            return 0.0;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (WorkerStats w : workers) {
+            min = Math.min(min, w.fatigue());
+            max = Math.max(max, w.fatigue());
+        }
+        return max - min;
+    }
+}
@@ -0,0 +1,27 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import parser.ExecutionPlan;
+import scheduling.CancellationToken;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One tree submitted through runAsync. Only the engine's coordinator thread touches it,
+ * so none of its fields need synchronization.
+ */
+class AsyncJob {
+
+    final ComputationNode root;
+    final CompletableFuture<ComputationNode> future;
+    final CancellationToken token;
+    final RunProfile profile = new RunProfile();
+    ExecutionPlan plan;
+    int running; // nodes launched and not reported back yet
+
+    AsyncJob(ComputationNode root, CompletableFuture<ComputationNode> future, CancellationToken token) {
+        this.root = root;
+        this.future = future;
+        this.token = token;
+    }
+}
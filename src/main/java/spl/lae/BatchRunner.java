@@ -0,0 +1,268 @@
+package spl.lae;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import memory.BinaryMatrixFile;
+import memory.SharedMatrix;
+import parser.ComputationNode;
+import parser.InputParser;
+import parser.OutputWriter;
+import scheduling.CancellationToken;
+
+/**
+ * Streams many jobs through one engine, so the JVM, the JIT and the workers are warmed up once.
+ *
+ * Jobs are JSON lines: {"input": "in.json", "output": "out.json", "id": "optional", "timeoutMillis": optional};
+ * blank lines are skipped. A job without timeoutMillis gets the runner's default timeout (0 = none).
+ * Every job gets its output file exactly like a single run of Main, errors included (see writeError), and one
+ * JSON line on the report stream with its latency. A summary line follows the last job.
+ * With metrics on, every job that reached the engine also gets a MetricsReport next to its output.
+ * With compact on, JSON outputs are written without whitespace.
+ */
+public class BatchRunner {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final LinearAlgebraEngine engine;
+    private final InputParser inputParser;
+    private final PrintStream report;
+    private final long defaultTimeoutMillis;
+    private final boolean metrics;
+    private final boolean compact;
+
+    public BatchRunner(LinearAlgebraEngine engine, PrintStream report) {
+        this(engine, report, 0);
+    }
+
+    public BatchRunner(LinearAlgebraEngine engine, PrintStream report, long defaultTimeoutMillis) {
+        this(engine, report, defaultTimeoutMillis, false);
+    }
+
+    public BatchRunner(LinearAlgebraEngine engine, PrintStream report, long defaultTimeoutMillis, boolean metrics) {
+        this(engine, report, defaultTimeoutMillis, metrics, false);
+    }
+
+    public BatchRunner(LinearAlgebraEngine engine, PrintStream report, long defaultTimeoutMillis, boolean metrics,
+                       boolean compact) {
+        this(engine, report, defaultTimeoutMillis, metrics, compact, new InputParser());
+    }
+
+    public BatchRunner(LinearAlgebraEngine engine, PrintStream report, long defaultTimeoutMillis, boolean metrics,
+                       boolean compact, InputParser inputParser) {
+        this.engine = engine;
+        this.inputParser = inputParser;
+        this.report = report;
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        this.metrics = metrics;
+        this.compact = compact;
+    }
+
+    /**
+     * Runs every job read from jobs and returns the number of jobs that failed.
+     */
+    public int run(BufferedReader jobs) throws IOException {
+        long[] latencies = new long[64];
+        int count = 0;
+        int failed = 0;
+        long batchStart = System.nanoTime();
+
+        String line;
+        int lineNo = 0;
+        while ((line = jobs.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            String id = null;
+            String input = null;
+            String output = null;
+            String error = null;
+            try {
+                String[] job = parseJob(line, lineNo);
+                id = job[0];
+                input = job[1];
+                output = job[2];
+                long timeout = job[3] != null ? Long.parseLong(job[3]) : defaultTimeoutMillis;
+                error = runJob(engine, inputParser, input, output, token(timeout), metrics, compact);
+            } catch (IllegalArgumentException | IOException e) {
+                error = e.getMessage();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = elapsed;
+            if (error != null) {
+                failed++;
+            }
+            reportJob(lineNo, id, input, output, error, elapsed);
+        }
+        reportSummary(Arrays.copyOf(latencies, count), failed, System.nanoTime() - batchStart);
+        return failed;
+    }
+
+    /**
+     * A token for a job that may run for timeoutMillis, or one that never expires for 0.
+     */
+    static CancellationToken token(long timeoutMillis) {
+        return timeoutMillis > 0 ? CancellationToken.withTimeout(timeoutMillis) : CancellationToken.NONE;
+    }
+
+    /**
+     * Parses, computes and writes one job. Returns null on success, or the error that was written to output,
+     * e.g. "Job timed out after 500 ms" once token expires. Only a failure to write the output itself is thrown.
+     * With metrics, a job that got as far as the engine also writes MetricsReport.pathFor(outputPath).
+     * compact drops the whitespace from JSON output.
+     */
+    static String runJob(LinearAlgebraEngine engine, InputParser inputParser, String inputPath, String outputPath,
+                         CancellationToken token, boolean metrics, boolean compact) throws IOException {
+        boolean ran = false;
+        String error = null;
+        try {
+            ComputationNode root = inputParser.parse(inputPath);
+            token.throwIfCancelled();
+            ran = true;
+            ComputationNode result = engine.run(root, token);
+            if (outputPath.endsWith(BinaryMatrixFile.EXTENSION)) {
+                // binary output keeps the result in engine storage, no double[][] in between
+                SharedMatrix shared = result.getSharedMatrix();
+                BinaryMatrixFile.write(shared != null ? shared : new SharedMatrix(result.getMatrix()), Paths.get(outputPath));
+            } else {
+                OutputWriter.write(result.getMatrix(), outputPath, compact);
+            }
+        } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+            writeError(error, outputPath, compact);
+        }
+        if (metrics && ran && engine.getLastProfile() != null) {
+            MetricsReport.write(engine.getLastProfile(), engine.getWorkerStats(), error, MetricsReport.pathFor(outputPath));
+        }
+        return error;
+    }
+
+    /**
+     * Writes error where a reader of outputPath looks for it. A .mat output cannot hold JSON, so its error
+     * goes to errorPathFor(outputPath) instead and a stale or half written .mat is removed.
+     */
+    static void writeError(String error, String outputPath, boolean compact) throws IOException {
+        if (outputPath.endsWith(BinaryMatrixFile.EXTENSION)) {
+            Files.deleteIfExists(Paths.get(outputPath));
+            OutputWriter.write(error, errorPathFor(outputPath), compact);
+        } else {
+            OutputWriter.write(error, outputPath, compact);
+        }
+    }
+
+    /**
+     * out.mat -> out.error.json, the error file of a binary output.
+     */
+    public static String errorPathFor(String outputPath) {
+        return outputPath.substring(0, outputPath.length() - BinaryMatrixFile.EXTENSION.length()) + ".error.json";
+    }
+
+    // {id, input, output, timeoutMillis} from one job line
+    private static String[] parseJob(String line, int lineNo) throws IOException {
+        String id = null;
+        String input = null;
+        String output = null;
+        String timeout = null;
+        try (JsonParser parser = factory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("job on line " + lineNo + " is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id":
+                        id = parser.getValueAsString();
+                        break;
+                    case "input":
+                        input = parser.getValueAsString();
+                        break;
+                    case "output":
+                        output = parser.getValueAsString();
+                        break;
+                    case "timeoutMillis":
+                        if (!parser.currentToken().isNumeric() || parser.getLongValue() <= 0) {
+                            throw new IllegalArgumentException("job on line " + lineNo + " has an invalid timeoutMillis");
+                        }
+                        timeout = String.valueOf(parser.getLongValue());
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new IllegalArgumentException("job on line " + lineNo + " is not valid JSON: " + e.getOriginalMessage());
+        }
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("job on line " + lineNo + " needs both \"input\" and \"output\"");
+        }
+        return new String[]{id, input, output, timeout};
+    }
+
+    private void reportJob(int lineNo, String id, String input, String output, String error, long nanos) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator gen = factory.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeNumberField("line", lineNo);
+            if (id != null) {
+                gen.writeStringField("id", id);
+            }
+            if (input != null) {
+                gen.writeStringField("input", input);
+                gen.writeStringField("output", output);
+            }
+            gen.writeStringField("status", error == null ? "ok" : "error");
+            if (error != null) {
+                gen.writeStringField("error", error);
+            }
+            gen.writeNumberField("millis", nanos / 1e6);
+            gen.writeEndObject();
+        }
+        report.println(out);
+    }
+
+    private void reportSummary(long[] latencies, int failed, long totalNanos) throws IOException {
+        Arrays.sort(latencies);
+        StringWriter out = new StringWriter();
+        try (JsonGenerator gen = factory.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeNumberField("jobs", latencies.length);
+            gen.writeNumberField("failed", failed);
+            gen.writeNumberField("totalMillis", totalNanos / 1e6);
+            if (latencies.length > 0) {
+                long sum = 0;
+                for (long l : latencies) {
+                    sum += l;
+                }
+                gen.writeNumberField("meanMillis", sum / 1e6 / latencies.length);
+                gen.writeNumberField("p50Millis", percentile(latencies, 0.50) / 1e6);
+                gen.writeNumberField("p95Millis", percentile(latencies, 0.95) / 1e6);
+                gen.writeNumberField("maxMillis", latencies[latencies.length - 1] / 1e6);
+            }
+            gen.writeEndObject();
+        }
+        report.println(out);
+    }
+
+    // nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
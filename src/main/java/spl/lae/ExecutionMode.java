@@ -0,0 +1,12 @@
+package spl.lae;
+
+/**
+ * How LinearAlgebraEngine walks the computation tree.
+ * SEQUENTIAL resolves one node at a time, every node using the engine's own operand matrices.
+ * PARALLEL_DAG treats the tree as a dependency graph and computes all ready nodes at once,
+ * each with its own operand buffers, on the shared executor.
+ */
+public enum ExecutionMode {
+    SEQUENTIAL,
+    PARALLEL_DAG
+}
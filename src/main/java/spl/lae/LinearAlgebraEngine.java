@@ -6,33 +6,418 @@ import scheduling.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 
 public class LinearAlgebraEngine {
 
     private SharedMatrix leftMatrix = new SharedMatrix();
     private SharedMatrix rightMatrix = new SharedMatrix();
-    private TiredExecutor executor;
+    private SharedMatrix productMatrix = new SharedMatrix(); // output buffer of the current MULTIPLY
+    private final TaskScheduler executor;
+    private final ExecutionMode mode;
+    private long estimatedFlopsSaved; // by the multiply chain ordering of the last run
+    private volatile RunProfile lastProfile; // of the last run to finish, successful or not
+    private final TaskPartitioner partitioner; // cuts every operation into about CHUNKS_PER_THREAD chunks per worker
+    // sparse results denser than this are converted back to dense storage
+    private double sparseDensity = CsrMatrix.DEFAULT_MAX_DENSITY;
+    // dense products with every dimension at least this large use Strassen-Winograd, 0 (the default) turns it off
+    private int strassenThreshold = StrassenWinograd.DEFAULT_THRESHOLD;
+    // also apply the AlgebraicRewriter rules that may change the sign of zeros or the order of summation
+    private boolean relaxedRewrites;
+
+    // runAsync: every job step runs on one coordinator thread, fed through this queue
+    private final BlockingQueue<Runnable> coordinatorEvents = new LinkedBlockingQueue<>();
+    private final Set<CompletableFuture<ComputationNode>> pendingJobs = ConcurrentHashMap.newKeySet();
+    private Thread coordinator; // started by the first runAsync
+    private static final Runnable STOP_COORDINATOR = () -> {};
 
     public LinearAlgebraEngine(int numThreads) {
         // TODO: create executor with given thread count
 
-        executor = new TiredExecutor(numThreads);
+        this(numThreads, ExecutionMode.SEQUENTIAL);
+    }
+
+    public LinearAlgebraEngine(int numThreads, ExecutionMode mode) {
+        this(new TiredExecutor(numThreads), mode);
+    }
+
+    /**
+     * Runs on the given scheduler, e.g. a WorkStealingExecutor instead of the default TiredExecutor.
+     */
+    public LinearAlgebraEngine(TaskScheduler scheduler, ExecutionMode mode) {
+        if (scheduler == null || mode == null) {
+            throw new IllegalArgumentException("scheduler and mode must not be null");
+        }
+        this.executor = scheduler;
+        this.mode = mode;
+        this.partitioner = new TaskPartitioner(scheduler.getNumThreads());
+    }
+
+    /**
+     * Sets the density above which a sparse result is converted back to dense storage.
+     * Should match the threshold the operands were parsed with.
+     */
+    public void setSparseDensity(double sparseDensity) {
+        this.sparseDensity = sparseDensity;
+    }
+
+    /**
+     * Dense MULTIPLY nodes whose dimensions are all at least threshold are split Strassen-Winograd style,
+     * the seven sub-products running as separate tasks; smaller ones, and every product for threshold 0,
+     * use the blocked kernel. So does every product on a scheduler with more workers than there are
+     * sub-products: seven tasks would leave the rest of them idle. Off by default, the split rounds
+     * differently from the blocked kernel.
+     */
+    public void setStrassenThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        this.strassenThreshold = threshold;
+    }
+
+    /**
+     * Lets the AlgebraicRewriter move signs across sums and products and transposes across products.
+     * Fewer steps, but results may differ from the written tree in the sign of zeros and in rounding.
+     */
+    public void setRelaxedRewrites(boolean relaxedRewrites) {
+        this.relaxedRewrites = relaxedRewrites;
     }
 
     public ComputationNode run(ComputationNode computationRoot) {
         // TODO: resolve computation tree step by step until final matrix is produced
+        return run(computationRoot, CancellationToken.NONE);
+    }
+
+    /**
+     * Like run(computationRoot), but gives up with JobCancelledException once token is cancelled
+     * or past its deadline. Queued tasks of the job are dropped and running kernels stop at their
+     * next block boundary, so the workers are free for other jobs soon after.
+     */
+    public ComputationNode run(ComputationNode computationRoot, CancellationToken token) {
+        if (token == null) {
+            throw new IllegalArgumentException("token is null");
+        }
+
+        RunProfile profile = new RunProfile();
+        try {
+            // reorder multiply chains by cost while they are still n-ary, nest whatever is left,
+            // then drop the negations and transposes that cancel out
+            estimatedFlopsSaved = new MultiplyChainPlanner().optimize(computationRoot);
+            computationRoot.associativeNesting();
+            List<AlgebraicRewriter.Rule> rewrites = new AlgebraicRewriter(relaxedRewrites).rewrite(computationRoot);
+
+            // plan once, then every resolved node just ticks its parent instead of re-walking the tree
+            ExecutionPlan plan = new ExecutionPlan(computationRoot);
+            profile.planned(estimatedFlopsSaved, rewrites);
+
+            if (mode == ExecutionMode.PARALLEL_DAG) {
+                runParallel(plan, token, profile);
+                return computationRoot;
+            }
+
+            while (computationRoot.getNodeType() != ComputationNodeType.MATRIX){
+
+                token.throwIfCancelled();
+                ComputationNode node = plan.nextReady();
+                NodeRun run = new NodeRun(node, leftMatrix, rightMatrix, productMatrix, token);
+                compute(run);
+                resolve(run);
+                profile.add(run.profile());
+                plan.resolved(node);
+            }
+
+
+            return computationRoot;
+        } finally {
+            publish(profile);
+        }
+    }
 
-        computationRoot.associativeNesting();
+    private void publish(RunProfile profile) {
+        profile.finish();
+        lastProfile = profile;
+    }
+
+    /**
+     * Resolves the tree by running every node whose operands are ready at the same time.
+     * Each node gets its own operand buffers (NodeRun), and its tasks are submitted without
+     * waiting, so independent subtrees share the workers instead of taking turns.
+     * When nodes fail, the failure reported is the one of the lowest plan index, whatever order they
+     * finished in: nodes above it are cancelled, nodes below it still run (none of them depends on it),
+     * so the error of a given input does not change from run to run.
+     */
+    private void runParallel(ExecutionPlan plan, CancellationToken token, RunProfile profile) {
+        BlockingQueue<NodeRun> finished = new LinkedBlockingQueue<>();
+        // every node gets a child of the job's token, so a failure cancels exactly the nodes above it;
+        // their queued or running tasks stop instead of holding the workers
+        CancellationToken job = token.child();
+        TreeMap<Integer, NodeRun> running = new TreeMap<>(); // by plan index
+        RuntimeException failure = null;
+        int failedAt = Integer.MAX_VALUE;
+
+        try {
+            while (true) {
+                for (ComputationNode node = plan.nextReady(); node != null; node = plan.nextReady()) {
+                    int at = plan.indexOf(node);
+                    if (at > failedAt) {
+                        continue;
+                    }
+                    job.throwIfCancelled();
+                    NodeRun run = new NodeRun(node, job.child());
+                    try {
+                        running.put(at, run);
+                        launch(run, finished::add);
+                    } catch (RuntimeException e) {
+                        running.remove(at);
+                        failure = e;
+                        failedAt = at;
+                        cancelAbove(running, failedAt, e);
+                    }
+                }
+                if (running.isEmpty()) {
+                    break;
+                }
+
+                NodeRun done;
+                try {
+                    done = finished.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("run interrupted", e);
+                }
+                int at = plan.indexOf(done.node);
+                running.remove(at);
+                if (at > failedAt) {
+                    continue; // cancelled, or failed after a lower node did
+                }
+                RuntimeException error = done.getFailure();
+                if (error == null) {
+                    try {
+                        finishCompute(done);
+                        resolve(done);
+                        profile.add(done.profile());
+                        plan.resolved(done.node);
+                    } catch (RuntimeException e) {
+                        error = e;
+                    }
+                }
+                if (error != null) {
+                    failure = error;
+                    failedAt = at;
+                    cancelAbove(running, failedAt, error);
+                }
+            }
+        } catch (RuntimeException e) {
+            job.cancel("failed: " + e.getMessage());
+            throw e;
+        }
+        if (failure != null) {
+            job.cancel("failed: " + failure.getMessage());
+            throw failure;
+        }
+    }
 
-        while (computationRoot.getNodeType() != ComputationNodeType.MATRIX){
+    private static void cancelAbove(TreeMap<Integer, NodeRun> running, int index, RuntimeException failure) {
+        for (NodeRun run : running.tailMap(index, false).values()) {
+            run.token.cancel("failed: " + failure.getMessage());
+        }
+    }
+
+    // loads the node's operands into its own buffers and submits its tasks, the last task reports to onDone
+    private void launch(NodeRun run, Consumer<NodeRun> onDone) {
+        submitTasks(run, prepareCompute(run), onDone);
+    }
 
-            ComputationNode node = computationRoot.findResolvable();
-            loadAndCompute(node);
-            node.resolve(leftMatrix.readRowMajor());
+    // submits the node's compute tasks, the last one to finish reports to onDone on its worker
+    private void submitTasks(NodeRun run, List<Runnable> tasks, Consumer<NodeRun> onDone) {
+        run.remaining.set(tasks.size());
+        run.submittedAt = System.nanoTime();
+        if (tasks.isEmpty()) {
+            run.finishedAt = run.submittedAt;
+            onDone.accept(run);
+            return;
         }
+        for (Runnable task : tasks) {
+            Runnable guarded = guard(run, task);
+            executor.submit(() -> {
+                try {
+                    guarded.run();
+                } finally {
+                    if (run.remaining.decrementAndGet() == 0) {
+                        run.finishedAt = System.nanoTime();
+                        onDone.accept(run);
+                    }
+                }
+            });
+        }
+    }
 
+    // drops the task if its job is already cancelled, otherwise runs it with the job's token current;
+    // any failure is recorded on the node instead of reaching the worker
+    private static Runnable guard(NodeRun run, Runnable task) {
+        return () -> {
+            run.queueWaitNanos.addAndGet(System.nanoTime() - run.submittedAt);
+            try {
+                run.token.throwIfCancelled();
+                run.token.runWith(task);
+            } catch (Throwable t) {
+                run.fail(t);
+            }
+        };
+    }
 
-        return computationRoot;
+    /**
+     * Resolves the tree in the background and returns at once.
+     * Every node gets its own buffers (as in PARALLEL_DAG), so any number of jobs can be in flight
+     * on the shared scheduler at the same time. Planning and bookkeeping happen on a single
+     * coordinator thread, which also completes the future: dependent stages that are not *Async
+     * run there and should not block. Everything that grows with the matrices runs on the scheduler
+     * instead: loading and copying operands and the Strassen split in one task per node, and the
+     * Strassen combine or sparse assembly on the worker that finishes the node's last task, so the
+     * coordinator does not serialize the jobs' O(n^2) steps. The tree is consumed like run() consumes it.
+     */
+    public CompletableFuture<ComputationNode> runAsync(ComputationNode computationRoot) {
+        return runAsync(computationRoot, CancellationToken.create());
+    }
+
+    /**
+     * runAsync with a cancellation token. Cancelling the returned future cancels the token too,
+     * so the job's remaining tasks are dropped.
+     */
+    public CompletableFuture<ComputationNode> runAsync(ComputationNode computationRoot, CancellationToken token) {
+        if (computationRoot == null || token == null) {
+            throw new IllegalArgumentException("computationRoot and token must not be null");
+        }
+        CompletableFuture<ComputationNode> future = new CompletableFuture<>();
+        future.whenComplete((result, failure) -> {
+            if (future.isCancelled()) {
+                token.cancel("cancelled");
+            }
+        });
+        pendingJobs.add(future);
+        future.whenComplete((result, failure) -> pendingJobs.remove(future));
+        startCoordinator();
+        // a child, so a failing node can cancel the job's other nodes without cancelling the caller's token
+        CancellationToken job = token.child();
+        coordinatorEvents.add(() -> startJob(new AsyncJob(computationRoot, future, job)));
+        return future;
+    }
+
+    private synchronized void startCoordinator() {
+        if (coordinator != null) {
+            return;
+        }
+        coordinator = new Thread(() -> {
+            while (true) {
+                Runnable event;
+                try {
+                    event = coordinatorEvents.take();
+                } catch (InterruptedException e) {
+                    continue; // only STOP_COORDINATOR ends the loop
+                }
+                if (event == STOP_COORDINATOR) {
+                    return;
+                }
+                event.run();
+            }
+        }, "LAE-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    // coordinator thread: plan the tree and launch its first nodes
+    private void startJob(AsyncJob job) {
+        try {
+            job.token.throwIfCancelled();
+            long saved = new MultiplyChainPlanner().optimize(job.root);
+            job.root.associativeNesting();
+            List<AlgebraicRewriter.Rule> rewrites = new AlgebraicRewriter(relaxedRewrites).rewrite(job.root);
+            job.plan = new ExecutionPlan(job.root);
+            job.profile.planned(saved, rewrites);
+            advance(job);
+        } catch (RuntimeException e) {
+            fail(job, e);
+        }
+    }
+
+    // coordinator thread: launch whatever became ready, or complete the job once the root is resolved
+    private void advance(AsyncJob job) {
+        if (job.root.getNodeType() == ComputationNodeType.MATRIX) {
+            publish(job.profile);
+            job.future.complete(job.root);
+            return;
+        }
+        job.token.throwIfCancelled();
+        for (ComputationNode node = job.plan.nextReady(); node != null; node = job.plan.nextReady()) {
+            job.running++;
+            NodeRun run = new NodeRun(node, job.token);
+            executor.submit(() -> prepareAsync(job, run));
+        }
+    }
+
+    // worker: loads the node's operands, then hands its tasks back to the coordinator to submit,
+    // a worker that submits could block on a full queue that only workers drain
+    private void prepareAsync(AsyncJob job, NodeRun run) {
+        List<Runnable> tasks;
+        try {
+            run.token.throwIfCancelled();
+            tasks = prepareCompute(run);
+        } catch (Throwable t) {
+            run.fail(t);
+            coordinatorEvents.add(() -> nodeDone(job, run));
+            return;
+        }
+        coordinatorEvents.add(() -> {
+            if (job.future.isDone()) {
+                job.running--; // the job already failed, its tasks are not submitted
+                return;
+            }
+            submitTasks(run, tasks, done -> finishAsync(job, done));
+        });
+    }
+
+    // worker that ran the node's last task: assembles the result there instead of on the coordinator
+    private void finishAsync(AsyncJob job, NodeRun done) {
+        if (done.getFailure() == null && !job.future.isDone()) {
+            try {
+                finishCompute(done);
+            } catch (Throwable t) {
+                done.fail(t);
+            }
+        }
+        coordinatorEvents.add(() -> nodeDone(job, done));
+    }
+
+    // coordinator thread: a node is computed, or failed
+    private void nodeDone(AsyncJob job, NodeRun done) {
+        job.running--;
+        if (job.future.isDone()) {
+            return; // the job already failed, later nodes are dropped
+        }
+        try {
+            if (done.getFailure() != null) {
+                throw done.getFailure();
+            }
+            resolve(done);
+            job.profile.add(done.profile());
+            job.plan.resolved(done.node);
+            advance(job);
+        } catch (RuntimeException e) {
+            fail(job, e);
+        }
+    }
+
+    // coordinator thread: stops the job's nodes that are still running, then fails the future
+    private void fail(AsyncJob job, RuntimeException e) {
+        job.token.cancel("failed: " + e.getMessage());
+        publish(job.profile);
+        job.future.completeExceptionally(e);
     }
 
     public void loadAndCompute(ComputationNode node) {
@@ -40,81 +425,333 @@ public class LinearAlgebraEngine {
         // TODO: create compute tasks & submit tasks to executor
         //we assume the node is already associatively nested
 
+        NodeRun run = new NodeRun(node, leftMatrix, rightMatrix, productMatrix, CancellationToken.NONE);
+        compute(run);
+        if (run.sparseResult != null) {
+            leftMatrix.takeFrom(run.sparseResult.toSharedMatrix());
+        }
+    }
+
+    // computes one node on the calling thread's turn, the result ends up in run.left or run.sparseResult
+    private void compute(NodeRun run) {
+        List<Runnable> tasks = prepareCompute(run);
+        List<Runnable> guarded = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            guarded.add(guard(run, task));
+        }
+
+        run.submittedAt = System.nanoTime();
+        executor.submitAll(guarded);
+        run.finishedAt = System.nanoTime();
+        if (run.getFailure() != null) {
+            throw run.getFailure();
+        }
+
+        finishCompute(run);
+    }
+
+    // hands the result storage to the node instead of copying it out, the parent adopts it as is
+    private void resolve(NodeRun run) {
+        long start = System.nanoTime();
+        if (run.sparseResult != null) {
+            run.node.resolve(run.sparseResult);
+        } else {
+            SharedMatrix result = new SharedMatrix();
+            result.takeFrom(run.left);
+            run.node.resolve(result);
+        }
+        run.readbackNanos += System.nanoTime() - start;
+    }
+
+    // loads the operands of the node into its buffers and returns the tasks that compute it
+    private List<Runnable> prepareCompute(NodeRun run) {
+        long start = System.nanoTime();
+        List<ComputationNode> children = run.node.getChildren();
+        run.inputShapes = new int[children.size()][];
+        for (int i = 0; i < children.size(); i++) {
+            ComputationNode child = children.get(i);
+            run.sparse |= child.getSparseMatrix() != null;
+            run.inputShapes[i] = shapeOf(child);
+        }
+        List<Runnable> tasks = createTasks(run);
+        run.taskCount = tasks.size();
+        run.loadNanos = System.nanoTime() - start;
+        return tasks;
+    }
+
+    // {rows, cols} of a resolved operand in whichever form it is stored
+    private static int[] shapeOf(ComputationNode operand) {
+        SharedMatrix shared = operand.getSharedMatrix();
+        if (shared != null) {
+            return new int[]{shared.rows(), shared.cols()};
+        }
+        CsrMatrix sparse = operand.getSparseMatrix();
+        if (sparse != null) {
+            return new int[]{sparse.rows(), sparse.cols()};
+        }
+        double[][] m = operand.getMatrix();
+        return new int[]{m.length, m.length == 0 ? 0 : m[0].length};
+    }
+
+    private List<Runnable> createTasks(NodeRun run) {
+        List<Runnable> sparseTasks = prepareSparse(run);
+        if (sparseTasks != null) {
+            return sparseTasks;
+        }
+
         List<Runnable> tasks;
+        ComputationNode node = run.node;
+        SharedMatrix left = run.left;
+        SharedMatrix right = run.right;
         List<ComputationNode> children = node.getChildren();
 
-        leftMatrix.loadRowMajor(children.get(0).getMatrix());
+        // only the left operand of a multiply has to be rows, everything else is taken in whatever orientation it is in
+        loadOperand(left, children.get(0), node.getNodeType() != ComputationNodeType.MULTIPLY);
 
         if(children.size() == 2){
-            rightMatrix.loadRowMajor(children.get(1).getMatrix());
+            loadOperand(right, children.get(1), true);
         }
 
 
         //switch case taken from computation node map op
         switch (node.getNodeType()) {
             case ADD:
-                tasks = createAddTasks();
+                tasks = createAddTasks(left, right);
                 break;
             case MULTIPLY:
-                tasks = createMultiplyTasks();
+                if (executor.getNumThreads() <= StrassenWinograd.PRODUCTS
+                        && StrassenWinograd.applies(left.rows(), left.cols(), right.cols(), strassenThreshold)) {
+                    run.strassen = StrassenWinograd.split(left, right, strassenThreshold);
+                    tasks = run.strassen.productTasks();
+                } else {
+                    tasks = createMultiplyTasks(left, right, run.product);
+                }
                 break;
             case NEGATE:
-                tasks = createNegateTasks();
+                tasks = createNegateTasks(left);
                 break;
             case TRANSPOSE:
-                tasks = createTransposeTasks();
+                // a view: the consumer reads the vectors in their new orientation, no task and no copy
+                left.transposeView();
+                tasks = new ArrayList<>();
                 break;
             default:
                 throw new IllegalArgumentException("Unknown operator: " + node.getNodeType());
         }
+        return tasks;
+    }
 
-        executor.submitAll(tasks);
+    /**
+     * Tasks for a node with at least one sparse operand, or null when both operands are dense.
+     * sparse op sparse stays sparse and is computed in row blocks; sparse op dense runs a mixed kernel
+     * into a dense buffer. NEGATE and TRANSPOSE of a sparse matrix are a single O(nnz) task.
+     */
+    private List<Runnable> prepareSparse(NodeRun run) {
+        List<ComputationNode> children = run.node.getChildren();
+        CsrMatrix a = children.get(0).getSparseMatrix();
+        CsrMatrix b = children.size() == 2 ? children.get(1).getSparseMatrix() : null;
+        if (a == null && b == null) {
+            return null;
+        }
 
+        List<Runnable> tasks = new ArrayList<>();
+        switch (run.node.getNodeType()) {
+            case NEGATE:
+                tasks.add(() -> run.sparseResult = a.negate());
+                return tasks;
+            case TRANSPOSE:
+                tasks.add(() -> run.sparseResult = a.transpose());
+                return tasks;
+            case ADD:
+                if (a != null && b != null) {
+                    if (a.rows() != b.rows() || a.cols() != b.cols()) {
+                        throw new IllegalArgumentException("Addition: dimension mismatch (" + a.rows() + " x " + a.cols()
+                                + ") + (" + b.rows() + " x " + b.cols() + ")");
+                    }
+                    return sparseBlockTasks(run, a.rows(), a.cols(), (long) a.nnz() + b.nnz(), (from, to) -> a.addRows(b, from, to));
+                }
+                // addition commutes, so the dense side is loaded into left and the sparse side added onto it
+                CsrMatrix sparse = a != null ? a : b;
+                loadOperand(run.left, children.get(a != null ? 1 : 0));
+                if (run.left.rows() != sparse.rows() || run.left.cols() != sparse.cols()) {
+                    throw new IllegalArgumentException("Addition: dimension mismatch (" + sparse.rows() + " x " + sparse.cols()
+                            + ") + (" + run.left.rows() + " x " + run.left.cols() + ")");
+                }
+                forEachRowBlock(sparse.rows(), sparse.nnz(), (from, to) -> tasks.add(() -> sparse.addRowsInto(run.left, from, to)));
+                return tasks;
+            case MULTIPLY:
+                if (a != null && b != null) {
+                    checkInner(a.rows(), a.cols(), b.rows(), b.cols());
+                    // every non-zero of a meets one row of b, b.nnz / b.rows entries on average
+                    long cost = (long) a.nnz() * Math.max(1, b.nnz() / Math.max(1, b.rows()));
+                    return sparseBlockTasks(run, a.rows(), b.cols(), cost, (from, to) -> a.multiplyRows(b, from, to));
+                }
+                if (a != null) {
+                    loadOperand(run.right, children.get(1));
+                    checkInner(a.rows(), a.cols(), run.right.rows(), run.right.cols());
+                    run.product.takeFrom(new SharedMatrix(a.rows(), run.right.cols()));
+                    long cost = (long) a.nnz() * run.right.cols();
+                    forEachRowBlock(a.rows(), cost, (from, to) -> tasks.add(() -> a.multiplyRowsInto(run.right, run.product, from, to)));
+                } else {
+                    loadOperand(run.left, children.get(0));
+                    checkInner(run.left.rows(), run.left.cols(), b.rows(), b.cols());
+                    run.product.takeFrom(new SharedMatrix(run.left.rows(), b.cols()));
+                    long cost = (long) run.left.rows() * (b.rows() + b.nnz());
+                    forEachRowBlock(run.left.rows(), cost, (from, to) -> tasks.add(() -> b.multiplyDenseRowsInto(run.left, run.product, from, to)));
+                }
+                return tasks;
+            default:
+                throw new IllegalArgumentException("Unknown operator: " + run.node.getNodeType());
+        }
+    }
 
+    // one task per row block, each filling its own slot of run.sparseBlocks
+    private List<Runnable> sparseBlockTasks(NodeRun run, int rows, int cols, long cost, RowBlockKernel kernel) {
+        List<Runnable> tasks = new ArrayList<>();
+        List<TaskPartitioner.Range> ranges = partitioner.rows(rows, cost);
+        CsrMatrix[] blocks = new CsrMatrix[ranges.size()];
+        run.sparseBlocks = blocks;
+        run.sparseCols = cols;
+        for (int i = 0; i < blocks.length; i++) {
+            int slot = i;
+            TaskPartitioner.Range range = ranges.get(i);
+            tasks.add(() -> blocks[slot] = kernel.compute(range.from(), range.to()));
+        }
+        return tasks;
+    }
 
+    private void forEachRowBlock(int rows, long cost, RowRange consumer) {
+        for (TaskPartitioner.Range range : partitioner.rows(rows, cost)) {
+            consumer.accept(range.from(), range.to());
+        }
+    }
+
+    private interface RowRange {
+        void accept(int from, int to);
+    }
 
+    private interface RowBlockKernel {
+        CsrMatrix compute(int from, int to);
+    }
+
+    private static void checkInner(int leftRows, int leftCols, int rightRows, int rightCols) {
+        if (leftCols != rightRows) {
+            throw new IllegalArgumentException("Multiplication: dimension mismatch (" + leftRows + " x " + leftCols
+                    + ") * (" + rightRows + " x " + rightCols + ")");
+        }
+    }
+
+    // after the tasks ran the result of the node is in run.left, or in run.sparseResult for the sparse path
+    private void finishCompute(NodeRun run) {
+        long start = System.nanoTime();
+        if (run.sparseBlocks != null) {
+            run.sparseResult = CsrMatrix.concatRows(run.sparseBlocks, run.sparseCols);
+            run.sparseBlocks = null;
+        }
+        if (run.sparseResult != null) {
+            // a result that filled in is cheaper to carry on densely
+            if (run.sparseResult.density() > sparseDensity) {
+                run.left.takeFrom(run.sparseResult.toSharedMatrix());
+                run.sparseResult = null;
+            }
+        } else if (run.node.getNodeType() == ComputationNodeType.MULTIPLY) {
+            if (run.strassen != null) {
+                run.strassen.combineInto(run.product);
+                run.strassen = null;
+            }
+            // the product was written to its own buffer, move it into left like the other ops
+            run.left.takeFrom(run.product);
+        }
+        run.outputShape = run.sparseResult != null
+                ? new int[]{run.sparseResult.rows(), run.sparseResult.cols()}
+                : new int[]{run.left.rows(), run.left.cols()};
+        run.readbackNanos += System.nanoTime() - start;
+    }
 
+    // loads operand as rows, see below
+    private void loadOperand(SharedMatrix target, ComputationNode operand) {
+        loadOperand(target, operand, false);
+    }
 
+    // adopts the storage of an already computed operand, copying it only when it is column-major
+    // (a transpose view) and the consumer needs rows; leaves that are still double[][] are copied in as rows
+    private void loadOperand(SharedMatrix target, ComputationNode operand, boolean anyOrientation) {
+        SharedMatrix shared = operand.getSharedMatrix();
+        if (shared == null) {
+            target.loadRowMajor(operand.getMatrix());
+        } else if (anyOrientation || shared.getOrientation() == VectorOrientation.ROW_MAJOR) {
+            target.takeFrom(shared);
+        } else {
+            target.takeFrom(shared.toRowMajor());
+        }
     }
 
     public List<Runnable> createAddTasks() {
         // TODO: return tasks that perform row-wise addition
+        return createAddTasks(leftMatrix, rightMatrix);
+    }
 
-
+    private List<Runnable> createAddTasks(SharedMatrix leftMatrix, SharedMatrix rightMatrix) {
         int n = leftMatrix.length();
+        List<Runnable> tasks = new ArrayList<>();
+
+        if (n > 0 && leftMatrix.getOrientation() != rightMatrix.getOrientation()) {
+            // one side is a transpose view: each chunk of left's vectors reads across right's vectors
+            if (leftMatrix.rows() != rightMatrix.rows() || leftMatrix.cols() != rightMatrix.cols()) {
+                throw new IllegalArgumentException("Addition: dimension mismatch (" + leftMatrix.rows() + " x " + leftMatrix.cols()
+                        + ") + (" + rightMatrix.rows() + " x " + rightMatrix.cols() + ")");
+            }
+            for (TaskPartitioner.Range chunk : partitioner.rows(n, elementCount(leftMatrix))) {
+                tasks.add(() -> leftMatrix.addVectors(rightMatrix, chunk.from(), chunk.to()));
+            }
+            return tasks;
+        }
         if (n != rightMatrix.length()) {
             throw new IllegalArgumentException("Addition: different number of vectors");
         }
 
-        List<Runnable> tasks = new ArrayList<>();
-
-        for(int i = 0; i < n; i++){
-            //for readability change i to row
-            int row = i;
-
-
+        // one chunk of consecutive rows per task, sized by the number of element updates
+        for (TaskPartitioner.Range chunk : partitioner.rows(n, elementCount(leftMatrix))) {
             tasks.add(() -> {
-                SharedVector left = leftMatrix.get(row);
-                SharedVector right = rightMatrix.get(row);
+                for (int row = chunk.from(); row < chunk.to(); row++) {
+                    SharedVector left = leftMatrix.get(row);
+                    SharedVector right = rightMatrix.get(row);
 
-                left.add(right);
+                    left.add(right);
+                }
             });
 
         }
         return tasks;
     }
 
+    // element updates of a row-wise pass over matrix
+    private static long elementCount(SharedMatrix matrix) {
+        int n = matrix.length();
+        return n == 0 ? 0 : (long) n * matrix.get(0).length();
+    }
+
     public List<Runnable> createMultiplyTasks() {
+        return createMultiplyTasks(leftMatrix, rightMatrix, productMatrix);
+    }
+
+    private List<Runnable> createMultiplyTasks(SharedMatrix leftMatrix, SharedMatrix rightMatrix, SharedMatrix product) {
         List<Runnable> tasks = new ArrayList<>();
         int numRows = leftMatrix.length();
 
-        for (int i = 0; i < numRows; i++) {
-            final int currentRow = i;
-            tasks.add(() -> {
-                SharedVector leftVec = leftMatrix.get(currentRow);
+        if (leftMatrix.cols() != rightMatrix.rows()) {
+            throw new IllegalArgumentException("Multiplication: dimension mismatch (" + leftMatrix.rows() + " x " + leftMatrix.cols()
+                    + ") * (" + rightMatrix.rows() + " x " + rightMatrix.cols() + ")");
+        }
 
+        // every task fills its own tile of the product with the blocked kernel
+        product.takeFrom(new SharedMatrix(numRows, rightMatrix.cols()));
 
-                leftVec.vecMatMul(rightMatrix);
+        // output tiles: row ranges, cut into column blocks too when there are fewer rows than chunks wanted
+        long cost = (long) numRows * rightMatrix.cols() * leftMatrix.cols();
+        for (TaskPartitioner.Tile tile : partitioner.tiles(numRows, rightMatrix.cols(), cost)) {
+            tasks.add(() -> {
+                leftMatrix.multiplyTileInto(rightMatrix, product, tile.rowFrom(), tile.rowTo(), tile.colFrom(), tile.colTo());
             });
         }
 
@@ -123,39 +760,94 @@ public class LinearAlgebraEngine {
 
     public List<Runnable> createNegateTasks() {
         // TODO: return tasks that negate rows
-        List<Runnable> tasks = new ArrayList<>();
+        return createNegateTasks(leftMatrix);
+    }
 
-        // iterate through all the vectors
-        for (int i = 0; i < leftMatrix.length(); i++) {
-            SharedVector v = leftMatrix.get(i);
+    private List<Runnable> createNegateTasks(SharedMatrix leftMatrix) {
+        List<Runnable> tasks = new ArrayList<>();
 
+        // iterate through the vectors a chunk at a time
+        for (TaskPartitioner.Range chunk : partitioner.rows(leftMatrix.length(), elementCount(leftMatrix))) {
             tasks.add(() -> {
-                // multiply by -1 in the vector negate function
-                v.negate();
+                for (int i = chunk.from(); i < chunk.to(); i++) {
+                    // multiply by -1 in the vector negate function
+                    leftMatrix.get(i).negate();
+                }
             });
         }
 
         return tasks;
     }
 
+    /**
+     * Tasks that flip every vector of leftMatrix. run() does not use them any more, a TRANSPOSE node
+     * becomes a view of its operand without going through the scheduler (SharedMatrix.transposeView).
+     */
     public List<Runnable> createTransposeTasks() {
         // TODO: return tasks that transpose rows
-        List<Runnable> tasks = new ArrayList<>();
-
-        // goes through all the vectors in the matrix
-        for (int i = 0; i < leftMatrix.length(); i++) {
+        return createTransposeTasks(leftMatrix);
+    }
 
-            SharedVector v = leftMatrix.get(i);
+    private List<Runnable> createTransposeTasks(SharedMatrix leftMatrix) {
+        List<Runnable> tasks = new ArrayList<>();
 
+        // goes through all the vectors in the matrix, flipping one costs the same whatever its length
+        for (TaskPartitioner.Range chunk : partitioner.rows(leftMatrix.length(), leftMatrix.length())) {
             tasks.add(() -> {
-                // change the orientation from row to column or vice versa
-                v.transpose();
+                for (int i = chunk.from(); i < chunk.to(); i++) {
+                    // change the orientation from row to column or vice versa
+                    leftMatrix.get(i).transpose();
+                }
             });
         }
 
         return tasks;
     }
 
+    /**
+     * Estimated floating point operations the last run saved by reordering multiply chains.
+     */
+    public long getEstimatedFlopsSaved() {
+        return estimatedFlopsSaved;
+    }
+
+    /**
+     * Waits for running tasks and async jobs and stops the scheduler's workers, the engine cannot be used afterwards.
+     */
+    public void shutdown() throws InterruptedException {
+        // let the async jobs finish first, their later nodes are not submitted yet
+        for (CompletableFuture<ComputationNode> job : List.copyOf(pendingJobs)) {
+            try {
+                job.join();
+            } catch (RuntimeException e) {
+                // reported through the future
+            }
+        }
+        synchronized (this) {
+            if (coordinator != null) {
+                coordinatorEvents.add(STOP_COORDINATOR);
+                coordinator.join();
+                coordinator = null;
+            }
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Per-node profile of the last run, runAsync jobs included, or null before the first one finished.
+     * A failed run keeps the nodes it resolved before the failure.
+     */
+    public RunProfile getLastProfile() {
+        return lastProfile;
+    }
+
+    /**
+     * Cumulative per-worker counters of the scheduler since the engine was created.
+     */
+    public List<WorkerStats> getWorkerStats() {
+        return executor.getWorkerStats();
+    }
+
     public String getWorkerReport() {
         // TODO: return summary of worker activity
         return executor.getWorkerReport();
@@ -1,36 +1,237 @@
 package spl.lae;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import parser.*;
+import memory.CsrMatrix;
+import memory.LockMode;
+import memory.SharedVector;
+import memory.StrassenWinograd;
+import scheduling.CancellationToken;
+import scheduling.VirtualThreadExecutor;
 
 public class Main {
+
+    private static final String USAGE =
+            "usage: Main <threads> <input.json> <output.json|output.mat> [options] (errors of a .mat output go to .error.json)\n"
+            + "       Main <threads> --batch=<jobs.jsonl|-> [options]\n"
+            + "options: --scheduler=tired|work-stealing|virtual --mode=sequential|parallel-dag --timeout=<ms per job>\n"
+            + "         --strassen-threshold=<n> (Strassen-Winograd for products with every side >= n, default 0 = off;\n"
+            + "           only with at most 7 threads, rounds differently from the blocked kernel)\n"
+            + "         --metrics (profile of every run as JSON next to its output, out.json -> out.metrics.json)\n"
+            + "         --compact (JSON output without whitespace)\n"
+            + "         --lock-mode=reentrant|optimistic (lock of every vector, default reentrant; optimistic reads\n"
+            + "           without locking and retries if a writer got in the way)\n"
+            + "         --relaxed-rewrites (also fold signs across sums and products and transposes across products;\n"
+            + "           fewer steps, but zeros may change sign and products may round differently)\n"
+            + "         --sparse[=<density>] (store operands with at most density non-zeros, default 0.05, as CSR;\n"
+            + "           skipped zeros do not keep -0.0 or propagate 0*Inf/NaN)\n"
+            + "run java with --add-modules jdk.incubator.vector -Dlae.kernels=vector to use the SIMD kernels\n"
+            + "  (faster, but fused multiply-add rounds differently from the default scalar kernels)";
+
     public static void main(String[] args) throws IOException {
       // TODO: main
 
-        if(args.length != 3){
+        // positional arguments first, --name=value options may appear anywhere
+        List<String> positional = new ArrayList<>();
+        List<String> options = new ArrayList<>();
+        for (String arg : args) {
+            (arg.startsWith("--") ? options : positional).add(arg);
+        }
+        String batch = null;
+        boolean metrics = false;
+        boolean compact = false;
+        for (String option : options) {
+            if (option.equals("--batch") || option.startsWith("--batch=")) {
+                batch = option.equals("--batch") ? "-" : option.substring("--batch=".length());
+            } else if (option.equals("--metrics")) {
+                metrics = true;
+            } else if (option.equals("--compact")) {
+                compact = true;
+            }
+        }
+        int expected = batch == null ? 3 : 1;
+        if(positional.size() != expected){
             System.err.println("Not enough args");
+            System.err.println(USAGE);
+            System.exit(2);
         }
-        
-        // parse command line argumets
-        int numOfThreads = Integer.parseInt(args[0]);
-        String inputPath = args[1];
-        String outputPath = args[2];
 
-        try{
-            InputParser inputParser = new InputParser();
-            ComputationNode root = inputParser.parse(inputPath);
-            LinearAlgebraEngine engine = new LinearAlgebraEngine(numOfThreads);
-            ComputationNode result = engine.run(root);
-            OutputWriter.write(result.getMatrix(), outputPath);
+        if (batch != null) {
+            System.exit(runBatch(positional.get(0), options, batch, metrics, compact));
+        }
 
+        String inputPath = positional.get(1);
+        String outputPath = positional.get(2);
 
+        LinearAlgebraEngine engine = null;
+        try{
+            // a malformed number or option ends up in the output file like any other error
+            // the deadline covers parsing as well
+            CancellationToken token = BatchRunner.token(timeoutMillis(options));
+            engine = createEngine(threads(positional.get(0)), options);
+            InputParser inputParser = new InputParser(sparseDensity(options));
+            BatchRunner.runJob(engine, inputParser, inputPath, outputPath, token, metrics, compact);
         }catch (Exception e) {
             try {
-                OutputWriter.write(e.getMessage(), outputPath);
+                BatchRunner.writeError(e.getMessage(), outputPath, compact);
             } catch (IOException io) {
                 // last-resort failure
                 io.printStackTrace();
             }
+        } finally {
+            shutdown(engine);
+        }
+    }
+
+    // one warmed engine for every job, per-job lines on stdout, exit code 1 if any job failed
+    private static int runBatch(String threads, List<String> options, String jobsPath,
+                                boolean metrics, boolean compact) throws IOException {
+        LinearAlgebraEngine engine;
+        InputParser inputParser;
+        long timeoutMillis;
+        try {
+            timeoutMillis = timeoutMillis(options);
+            inputParser = new InputParser(sparseDensity(options));
+            engine = createEngine(threads(threads), options);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+        try (BufferedReader jobs = jobsPath.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(jobsPath), StandardCharsets.UTF_8)) {
+            int failed = new BatchRunner(engine, System.out, timeoutMillis, metrics, compact, inputParser).run(jobs);
+            return failed == 0 ? 0 : 1;
+        } finally {
+            System.out.flush();
+            shutdown(engine);
+        }
+    }
+
+    private static LinearAlgebraEngine createEngine(int numOfThreads, List<String> options) {
+        SchedulerType schedulerType = SchedulerType.TIRED;
+        ExecutionMode mode = ExecutionMode.SEQUENTIAL;
+        int strassenThreshold = StrassenWinograd.DEFAULT_THRESHOLD;
+        boolean relaxedRewrites = false;
+        for (String option : options) {
+            String value = option.substring(option.indexOf('=') + 1).toUpperCase(Locale.ROOT).replace('-', '_');
+            if (option.startsWith("--scheduler=")) {
+                schedulerType = choice(SchedulerType.class, option, value);
+            } else if (option.startsWith("--mode=")) {
+                mode = choice(ExecutionMode.class, option, value);
+            } else if (option.startsWith("--strassen-threshold=")) {
+                strassenThreshold = (int) number(option, Integer.MAX_VALUE);
+            } else if (option.equals("--relaxed-rewrites")) {
+                relaxedRewrites = true;
+            } else if (option.startsWith("--lock-mode=")) {
+                // global, and read when a vector is created: before the engine makes any
+                SharedVector.setDefaultLockMode(choice(LockMode.class, option, value));
+            } else if (!option.equals("--batch") && !option.startsWith("--batch=") && !option.startsWith("--timeout=")
+                    && !option.equals("--metrics") && !option.equals("--compact")
+                    && !option.equals("--sparse") && !option.startsWith("--sparse=")) {
+                throw new IllegalArgumentException("Unknown option " + option + "\n" + USAGE);
+            }
+        }
+        if (schedulerType == SchedulerType.VIRTUAL) {
+            // the carrier pool is created with the first virtual thread, size it before that
+            if (System.getProperty(VirtualThreadExecutor.CARRIER_PARALLELISM_PROPERTY) == null) {
+                System.setProperty(VirtualThreadExecutor.CARRIER_PARALLELISM_PROPERTY, String.valueOf(numOfThreads));
+            }
+        }
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(schedulerType.create(numOfThreads), mode);
+        engine.setStrassenThreshold(strassenThreshold);
+        engine.setRelaxedRewrites(relaxedRewrites);
+        double sparseDensity = sparseDensity(options);
+        if (sparseDensity >= 0) {
+            engine.setSparseDensity(sparseDensity);
+        }
+        return engine;
+    }
+
+    // --sparse turns CSR operands on at the default density, --sparse=d at density d; -1 (all dense) without it
+    private static double sparseDensity(List<String> options) {
+        double density = -1;
+        for (String option : options) {
+            if (option.equals("--sparse")) {
+                density = CsrMatrix.DEFAULT_MAX_DENSITY;
+            } else if (option.startsWith("--sparse=")) {
+                try {
+                    density = Double.parseDouble(option.substring("--sparse=".length()));
+                } catch (NumberFormatException e) {
+                    density = Double.NaN;
+                }
+                if (!(density >= 0 && density <= 1)) {
+                    throw new IllegalArgumentException("--sparse density must be between 0 and 1\n" + USAGE);
+                }
+            }
+        }
+        return density;
+    }
+
+    // --timeout=<ms>, 0 (no deadline) without it
+    private static long timeoutMillis(List<String> options) {
+        long timeoutMillis = 0;
+        for (String option : options) {
+            if (option.startsWith("--timeout=")) {
+                timeoutMillis = number(option, Long.MAX_VALUE);
+            }
+        }
+        return timeoutMillis;
+    }
+
+    private static int threads(String arg) {
+        try {
+            int threads = Integer.parseInt(arg);
+            if (threads > 0) {
+                return threads;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("<threads> must be a positive integer, got " + arg + "\n" + USAGE);
+    }
+
+    // the value of a --name=<n> option, an integer between 0 and max
+    private static long number(String option, long max) {
+        String value = option.substring(option.indexOf('=') + 1);
+        try {
+            long n = Long.parseLong(value);
+            if (n >= 0 && n <= max) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option.substring(0, option.indexOf('=')) + " must be an integer between 0 and "
+                + max + ", got " + value + "\n" + USAGE);
+    }
+
+    // the constant of type named by a --name=<value> option, value already upper-cased
+    private static <E extends Enum<E>> E choice(Class<E> type, String option, String value) {
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown value in " + option + "\n" + USAGE);
+        }
+    }
+
+    // stops the workers so the JVM can exit
+    private static void shutdown(LinearAlgebraEngine engine) {
+        if (engine == null) {
+            return;
+        }
+        try {
+            engine.shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package spl.lae;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+import parser.AlgebraicRewriter;
+import scheduling.WorkerStats;
+
+/**
+ * Writes the profile of a run as JSON next to its output: out.json gets out.metrics.json.
+ *
+ * {"status", "error"?, "totalMillis", "planMillis", "estimatedFlopsSaved", "rewrites": [rule, ...], "flops",
+ *  "stages": {load, queueWait, compute, readback totals in ms},
+ *  "nodes": [{"operator", "inputs", "output", "sparse", "tasks", "flops", "gflops", *Nanos}, ...],
+ *  "workers": [{"id", "name", "usedNanos", "idleNanos", "utilization", "fatigue"}, ...], "fatigueSpread"}
+ *
+ * Nodes are listed in the order they were resolved; worker counters are cumulative since the engine started.
+ */
+public final class MetricsReport {
+
+    public static final String SUFFIX = ".metrics.json";
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private MetricsReport() {}
+
+    /**
+     * outputPath with its extension replaced by .metrics.json.
+     */
+    public static String pathFor(String outputPath) {
+        int dot = outputPath.lastIndexOf('.');
+        int slash = outputPath.lastIndexOf(File.separatorChar);
+        String base = dot > slash + 1 ? outputPath.substring(0, dot) : outputPath;
+        return base + SUFFIX;
+    }
+
+    /**
+     * error is null for a successful run.
+     */
+    public static void write(RunProfile profile, List<WorkerStats> workers, String error, String path) throws IOException {
+        try (JsonGenerator gen = factory.createGenerator(new File(path), JsonEncoding.UTF8)) {
+            gen.setPrettyPrinter(new DefaultPrettyPrinter());
+            List<NodeProfile> nodes = profile.getNodes();
+            long flops = 0;
+            long load = 0;
+            long wait = 0;
+            long compute = 0;
+            long readback = 0;
+            for (NodeProfile node : nodes) {
+                flops += node.flops();
+                load += node.loadNanos();
+                wait += node.queueWaitNanos();
+                compute += node.computeNanos();
+                readback += node.readbackNanos();
+            }
+
+            gen.writeStartObject();
+            gen.writeStringField("status", error == null ? "ok" : "error");
+            if (error != null) {
+                gen.writeStringField("error", error);
+            }
+            gen.writeNumberField("totalMillis", profile.getTotalNanos() / 1e6);
+            gen.writeNumberField("planMillis", profile.getPlanNanos() / 1e6);
+            gen.writeNumberField("estimatedFlopsSaved", profile.getEstimatedFlopsSaved());
+            gen.writeArrayFieldStart("rewrites");
+            for (AlgebraicRewriter.Rule rule : profile.getRewrites()) {
+                gen.writeString(rule.name());
+            }
+            gen.writeEndArray();
+            gen.writeNumberField("flops", flops);
+
+            gen.writeObjectFieldStart("stages");
+            gen.writeNumberField("loadMillis", load / 1e6);
+            gen.writeNumberField("queueWaitMillis", wait / 1e6);
+            gen.writeNumberField("computeMillis", compute / 1e6);
+            gen.writeNumberField("readbackMillis", readback / 1e6);
+            gen.writeEndObject();
+
+            gen.writeArrayFieldStart("nodes");
+            for (NodeProfile node : nodes) {
+                gen.writeStartObject();
+                gen.writeStringField("operator", node.operator());
+                gen.writeArrayFieldStart("inputs");
+                for (int[] shape : node.inputShapes()) {
+                    gen.writeArray(shape, 0, shape.length);
+                }
+                gen.writeEndArray();
+                gen.writeFieldName("output");
+                gen.writeArray(node.outputShape(), 0, node.outputShape().length);
+                gen.writeBooleanField("sparse", node.sparse());
+                gen.writeNumberField("tasks", node.tasks());
+                gen.writeNumberField("flops", node.flops());
+                // flops per ns is GFLOP/s
+                gen.writeNumberField("gflops", node.computeNanos() == 0 ? 0.0 : (double) node.flops() / node.computeNanos());
+                gen.writeNumberField("loadNanos", node.loadNanos());
+                gen.writeNumberField("queueWaitNanos", node.queueWaitNanos());
+                gen.writeNumberField("computeNanos", node.computeNanos());
+                gen.writeNumberField("readbackNanos", node.readbackNanos());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+
+            gen.writeArrayFieldStart("workers");
+            for (WorkerStats w : workers) {
+                gen.writeStartObject();
+                gen.writeNumberField("id", w.id());
+                gen.writeStringField("name", w.name());
+                gen.writeNumberField("usedNanos", w.usedNanos());
+                gen.writeNumberField("idleNanos", w.idleNanos());
+                gen.writeNumberField("utilization", w.utilization());
+                gen.writeNumberField("fatigue", w.fatigue());
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeNumberField("fatigueSpread", WorkerStats.fatigueSpread(workers));
+            gen.writeEndObject();
+        }
+    }
+}
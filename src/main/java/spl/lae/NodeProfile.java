@@ -0,0 +1,15 @@
+package spl.lae;
+
+/**
+ * Where the time of one resolved node went.
+ *
+ * load: operands copied or adopted into the node's buffers and its tasks created.
+ * queueWait: summed over the node's tasks, from submission until a worker picked each up.
+ * compute: from submitting the first task until the last one finished.
+ * readback: sparse blocks joined, results densified and handed to the node.
+ * flops counts dense operations (2mkn for MULTIPLY, one per element for ADD and NEGATE, none for TRANSPOSE),
+ * also for sparse nodes, which do less.
+ */
+public record NodeProfile(String operator, int[][] inputShapes, int[] outputShape, boolean sparse, int tasks,
+                          long flops, long loadNanos, long queueWaitNanos, long computeNanos, long readbackNanos) {
+}
@@ -0,0 +1,89 @@
+package spl.lae;
+
+import memory.CsrMatrix;
+import memory.SharedMatrix;
+import memory.StrassenWinograd;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.CancellationToken;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of one node being computed: its operand buffers, the number of its tasks still running,
+ * and the first failure any of them hit. PARALLEL_DAG mode gives every node its own buffers,
+ * SEQUENTIAL mode reuses the engine's.
+ */
+class NodeRun {
+
+    final ComputationNode node;
+    final SharedMatrix left;
+    final SharedMatrix right;
+    final SharedMatrix product;
+    final CancellationToken token; // of the job the node belongs to
+    final AtomicInteger remaining = new AtomicInteger();
+    private volatile RuntimeException failure;
+
+    // sparse path: the row blocks the tasks fill in, joined into sparseResult once they are done
+    CsrMatrix[] sparseBlocks;
+    int sparseCols;
+    volatile CsrMatrix sparseResult;
+
+    // MULTIPLY above the Strassen threshold: the split whose seven products the tasks compute
+    StrassenWinograd strassen;
+
+    // profile, see NodeProfile
+    final ComputationNodeType operator;
+    int[][] inputShapes;
+    boolean sparse;
+    int[] outputShape;
+    int taskCount;
+    long loadNanos;
+    long submittedAt;
+    volatile long finishedAt; // set by the thread that ran the last task
+    final AtomicLong queueWaitNanos = new AtomicLong();
+    long readbackNanos;
+
+    NodeRun(ComputationNode node, CancellationToken token) {
+        this(node, new SharedMatrix(), new SharedMatrix(), new SharedMatrix(), token);
+    }
+
+    NodeRun(ComputationNode node, SharedMatrix left, SharedMatrix right, SharedMatrix product, CancellationToken token) {
+        this.node = node;
+        this.operator = node.getNodeType();
+        this.token = token;
+        this.left = left;
+        this.right = right;
+        this.product = product;
+    }
+
+    void fail(Throwable t) {
+        if (failure == null) {
+            failure = t instanceof RuntimeException ? (RuntimeException) t : new RuntimeException(t);
+        }
+    }
+
+    RuntimeException getFailure() {
+        return failure;
+    }
+
+    // once the node is resolved
+    NodeProfile profile() {
+        int[] in = inputShapes[0];
+        long elements = (long) in[0] * in[1];
+        long flops;
+        switch (operator) {
+            case MULTIPLY:
+                flops = 2 * elements * inputShapes[1][1];
+                break;
+            case TRANSPOSE:
+                flops = 0;
+                break;
+            default:
+                flops = elements;
+        }
+        return new NodeProfile(operator.name(), inputShapes, outputShape, sparse, taskCount, flops,
+                loadNanos, queueWaitNanos.get(), Math.max(0, finishedAt - submittedAt), readbackNanos);
+    }
+}
@@ -0,0 +1,56 @@
+package spl.lae;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import parser.AlgebraicRewriter;
+
+/**
+ * Per-node profile of one run, in the order the nodes were resolved.
+ * Nodes of a PARALLEL_DAG or async run finish on different threads, so adding is synchronized.
+ */
+public class RunProfile {
+
+    private final long startedAt = System.nanoTime();
+    private final List<NodeProfile> nodes = new ArrayList<>();
+    private long planNanos;
+    private long totalNanos;
+    private long estimatedFlopsSaved;
+    private List<AlgebraicRewriter.Rule> rewrites = List.of();
+
+    synchronized void add(NodeProfile node) {
+        nodes.add(node);
+    }
+
+    synchronized void planned(long estimatedFlopsSaved, List<AlgebraicRewriter.Rule> rewrites) {
+        this.planNanos = System.nanoTime() - startedAt;
+        this.estimatedFlopsSaved = estimatedFlopsSaved;
+        this.rewrites = List.copyOf(rewrites);
+    }
+
+    synchronized void finish() {
+        totalNanos = System.nanoTime() - startedAt;
+    }
+
+    public synchronized List<NodeProfile> getNodes() {
+        return new ArrayList<>(nodes);
+    }
+
+    /** Multiply chain ordering, nesting and algebraic rewrites, before the first node started. */
+    public synchronized long getPlanNanos() {
+        return planNanos;
+    }
+
+    public synchronized long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public synchronized long getEstimatedFlopsSaved() {
+        return estimatedFlopsSaved;
+    }
+
+    /** Algebraic rewrite rules applied to the tree before it ran, in the order they fired. */
+    public synchronized List<AlgebraicRewriter.Rule> getRewrites() {
+        return rewrites;
+    }
+}
@@ -0,0 +1,26 @@
+package spl.lae;
+
+import scheduling.TaskScheduler;
+import scheduling.TiredExecutor;
+import scheduling.VirtualThreadExecutor;
+import scheduling.WorkStealingExecutor;
+
+/**
+ * The schedulers Main can run the engine on.
+ */
+public enum SchedulerType {
+    TIRED,
+    WORK_STEALING,
+    VIRTUAL;
+
+    public TaskScheduler create(int numThreads) {
+        switch (this) {
+            case WORK_STEALING:
+                return new WorkStealingExecutor(numThreads);
+            case VIRTUAL:
+                return new VirtualThreadExecutor(numThreads);
+            default:
+                return new TiredExecutor(numThreads);
+        }
+    }
+}
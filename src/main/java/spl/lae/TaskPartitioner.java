@@ -0,0 +1,95 @@
+package spl.lae;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns one operation into balanced chunks of work.
+ *
+ * The number of chunks comes from the estimated cost of the whole operation (element updates,
+ * or rows x cols x inner for a multiply): about CHUNKS_PER_THREAD chunks per worker, but no chunk
+ * cheaper than MIN_CHUNK_COST unless that would leave workers without a row to work on.
+ * Chunks can be row ranges, column ranges or output tiles; ranges are half open.
+ */
+public class TaskPartitioner {
+
+    public static final int CHUNKS_PER_THREAD = 4;
+    // below this many elementary operations a chunk costs more to schedule than to run
+    public static final long MIN_CHUNK_COST = 1L << 14;
+    // narrowest column block of a tile, keeps the multiply kernel streaming full cache lines
+    public static final int MIN_TILE_WIDTH = 64;
+
+    public record Range(int from, int to) {}
+
+    public record Tile(int rowFrom, int rowTo, int colFrom, int colTo) {}
+
+    private final int threads;
+
+    public TaskPartitioner(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * How many chunks an operation of totalCost should be cut into when it has units pieces
+     * (rows) to hand out. Never more than units, and at least one per worker while rows last.
+     */
+    public int chunkCount(long totalCost, int units) {
+        if (units <= 0) {
+            return 0;
+        }
+        long byCost = Math.max(1, totalCost / MIN_CHUNK_COST);
+        long wanted = Math.min((long) threads * CHUNKS_PER_THREAD, Math.max(byCost, Math.min(units, threads)));
+        return (int) Math.min(wanted, units);
+    }
+
+    /**
+     * Splits rows [0, rows) into balanced ranges for an operation of totalCost.
+     */
+    public List<Range> rows(int rows, long totalCost) {
+        return split(rows, chunkCount(totalCost, rows));
+    }
+
+    /**
+     * Splits columns [0, cols) into balanced ranges for an operation of totalCost.
+     */
+    public List<Range> columns(int cols, long totalCost) {
+        return split(cols, chunkCount(totalCost, cols));
+    }
+
+    /**
+     * Splits a rows x cols output into tiles. Rows are split first; columns are only cut when
+     * there are fewer row ranges than chunks wanted, and never narrower than MIN_TILE_WIDTH.
+     */
+    public List<Tile> tiles(int rows, int cols, long totalCost) {
+        List<Tile> tiles = new ArrayList<>();
+        if (rows <= 0 || cols <= 0) {
+            return tiles;
+        }
+        long byCost = Math.max(1, totalCost / MIN_CHUNK_COST);
+        int wanted = (int) Math.min((long) threads * CHUNKS_PER_THREAD, Math.max(byCost, Math.min(rows, threads)));
+        int rowBlocks = Math.min(rows, wanted);
+        int colBlocks = Math.max(1, Math.min((wanted + rowBlocks - 1) / rowBlocks, cols / MIN_TILE_WIDTH));
+        for (Range r : split(rows, rowBlocks)) {
+            for (Range c : split(cols, colBlocks)) {
+                tiles.add(new Tile(r.from(), r.to(), c.from(), c.to()));
+            }
+        }
+        return tiles;
+    }
+
+    // n pieces over [0, length), sizes differ by at most one
+    private static List<Range> split(int length, int n) {
+        List<Range> ranges = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int from = (int) ((long) length * i / n);
+            int to = (int) ((long) length * (i + 1) / n);
+            if (from < to) {
+                ranges.add(new Range(from, to));
+            }
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,138 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import parser.AlgebraicRewriter;
+import parser.AlgebraicRewriter.Rule;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+public class AlgebraicRewriterTest {
+
+    private static ComputationNode leaf(int rows, int cols) {
+        return new ComputationNode(new double[rows][cols]);
+    }
+
+    private static ComputationNode t(ComputationNode a) {
+        return new ComputationNode(ComputationNodeType.TRANSPOSE, new ArrayList<>(List.of(a)));
+    }
+
+    private static ComputationNode neg(ComputationNode a) {
+        return new ComputationNode(ComputationNodeType.NEGATE, new ArrayList<>(List.of(a)));
+    }
+
+    private static ComputationNode mul(ComputationNode a, ComputationNode b) {
+        return new ComputationNode(ComputationNodeType.MULTIPLY, new ArrayList<>(List.of(a, b)));
+    }
+
+    private static ComputationNode add(ComputationNode a, ComputationNode b) {
+        return new ComputationNode(ComputationNodeType.ADD, new ArrayList<>(List.of(a, b)));
+    }
+
+    // the tree as T, -, *, + and leaves named by shape
+    private static String show(ComputationNode node) {
+        List<ComputationNode> c = node.getChildren();
+        switch (node.getNodeType()) {
+            case TRANSPOSE: return "T(" + show(c.get(0)) + ")";
+            case NEGATE: return "-" + show(c.get(0));
+            case MULTIPLY: return "(" + show(c.get(0)) + "*" + show(c.get(1)) + ")";
+            case ADD: return "(" + show(c.get(0)) + "+" + show(c.get(1)) + ")";
+            default: return node.getMatrix().length + "x" + node.getMatrix()[0].length;
+        }
+    }
+
+    private static List<Rule> rewrite(ComputationNode root) {
+        return new AlgebraicRewriter().rewrite(root);
+    }
+
+    private static List<Rule> relaxed(ComputationNode root) {
+        return new AlgebraicRewriter(true).rewrite(root);
+    }
+
+    @Test
+    void testDoubleTransposeAndNegationCancel() {
+        ComputationNode a = leaf(2, 3);
+        ComputationNode root = t(t(neg(neg(a))));
+        assertEquals(List.of(Rule.DOUBLE_NEGATION, Rule.DOUBLE_TRANSPOSE), rewrite(root));
+        // the root object the caller holds becomes the leaf
+        assertEquals(ComputationNodeType.MATRIX, root.getNodeType());
+        assertSame(a.getMatrix(), root.getMatrix());
+    }
+
+    @Test
+    void testSignsStayWhereTheyAreByDefault() {
+        // each of these changes the sign of some zeros, only the relaxed rewriter folds them
+        ComputationNode both = mul(neg(leaf(2, 3)), neg(leaf(3, 4)));
+        assertEquals(List.of(), rewrite(both));
+        assertEquals("(-2x3*-3x4)", show(both));
+
+        ComputationNode sum = add(neg(leaf(2, 2)), neg(leaf(2, 2)));
+        assertEquals(List.of(), rewrite(sum));
+        assertEquals("(-2x2+-2x2)", show(sum));
+
+        ComputationNode thin = neg(mul(neg(leaf(10, 10)), leaf(10, 1)));
+        assertEquals(List.of(), rewrite(thin));
+        assertEquals("-(-10x10*10x1)", show(thin));
+    }
+
+    @Test
+    void testSignsFoldIntoMultiply() {
+        ComputationNode both = mul(neg(leaf(2, 3)), neg(leaf(3, 4)));
+        assertEquals(List.of(Rule.NEGATED_FACTORS), relaxed(both));
+        assertEquals("(2x3*3x4)", show(both));
+
+        // the product is larger than -B, so the sign stays on B until the negation above takes it
+        ComputationNode absorbed = neg(mul(leaf(4, 2), neg(leaf(2, 4))));
+        assertEquals(List.of(Rule.NEGATION_ABSORBED), relaxed(absorbed));
+        assertEquals("(4x2*2x4)", show(absorbed));
+
+        ComputationNode sum = add(neg(leaf(2, 2)), neg(leaf(2, 2)));
+        assertEquals(List.of(Rule.NEGATED_SUM), relaxed(sum));
+        assertEquals("-(2x2+2x2)", show(sum));
+    }
+
+    @Test
+    void testSignIsHoistedOnlyWhenTheProductIsSmaller() {
+        // -A is 10x10 but A * B only 10x1: negate the product
+        ComputationNode thin = mul(neg(leaf(10, 10)), leaf(10, 1));
+        assertEquals(List.of(Rule.SIGN_HOIST), relaxed(thin));
+        assertEquals("-(10x10*10x1)", show(thin));
+
+        // -A is 10x1 and A * B 10x10: leave the negation on A
+        ComputationNode wide = mul(neg(leaf(10, 1)), leaf(1, 10));
+        assertEquals(List.of(), relaxed(wide));
+        assertEquals("(-10x1*1x10)", show(wide));
+
+        // a hoisted sign meets the one above it: -(A * -B) + -C becomes -((A * B) + C)
+        ComputationNode chained = add(mul(leaf(4, 4), neg(leaf(4, 4))), neg(leaf(4, 4)));
+        assertEquals(List.of(Rule.SIGN_HOIST, Rule.NEGATED_SUM), relaxed(chained));
+        assertEquals("-((4x4*4x4)+4x4)", show(chained));
+    }
+
+    @Test
+    void testTransposeIsPushedDownOnlyWhenItCancels() {
+        // reordering a product is relaxed only, the kernel may sum T(B) * A in another order than A * B
+        ComputationNode product = t(mul(t(leaf(3, 2)), leaf(3, 4)));
+        assertEquals(List.of(), rewrite(product));
+        assertEquals("T((T(3x2)*3x4))", show(product));
+        assertEquals(List.of(Rule.TRANSPOSE_PUSHDOWN, Rule.DOUBLE_TRANSPOSE), relaxed(product));
+        assertEquals("(T(3x4)*3x2)", show(product));
+
+        ComputationNode sum = t(add(t(leaf(2, 3)), t(leaf(2, 3))));
+        assertEquals(List.of(Rule.TRANSPOSE_PUSHDOWN, Rule.DOUBLE_TRANSPOSE, Rule.DOUBLE_TRANSPOSE), rewrite(sum));
+        assertEquals("(2x3+2x3)", show(sum));
+
+        ComputationNode negated = t(neg(t(leaf(2, 3))));
+        assertEquals(List.of(Rule.TRANSPOSE_PUSHDOWN, Rule.DOUBLE_TRANSPOSE), rewrite(negated));
+        assertEquals("-2x3", show(negated));
+
+        // nothing under the transpose cancels, a transpose is a free view so it stays where it is
+        ComputationNode plain = t(mul(leaf(2, 3), leaf(3, 4)));
+        assertEquals(List.of(), rewrite(plain));
+        assertEquals("T((2x3*3x4))", show(plain));
+    }
+}
@@ -0,0 +1,142 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import spl.lae.BatchRunner;
+import spl.lae.LinearAlgebraEngine;
+
+public class BatchRunnerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testJobsShareOneEngine() throws Exception {
+        Files.writeString(dir.resolve("a.json"), "{\"operator\": \"+\", \"operands\": [[[1, 2]], [[3, 4]]]}");
+        Files.writeString(dir.resolve("b.json"), "{\"operator\": \"*\", \"operands\": [[[1, 2]], [[3, 4]]]}");
+        String jobs = job("a.json", "a.out.json", "first") + "\n\n"
+                + job("b.json", "b.out.json", null) + "\n"
+                + job("a.json", "again.out.json", null) + "\n";
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        int failed = new BatchRunner(engine, new PrintStream(report, true, StandardCharsets.UTF_8))
+                .run(new BufferedReader(new StringReader(jobs)));
+        engine.shutdown();
+
+        assertEquals(1, failed, "the multiply has mismatched shapes");
+        assertTrue(Files.readString(dir.resolve("a.out.json")).contains("4.0"));
+        assertTrue(Files.readString(dir.resolve("b.out.json")).contains("\"error\""));
+        assertEquals(Files.readString(dir.resolve("a.out.json")), Files.readString(dir.resolve("again.out.json")));
+
+        String[] lines = report.toString(StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(4, lines.length, "one line per job and a summary");
+        assertTrue(lines[0].contains("\"id\":\"first\"") && lines[0].contains("\"status\":\"ok\"") && lines[0].contains("\"millis\""));
+        assertTrue(lines[1].contains("\"status\":\"error\""));
+        assertTrue(lines[3].startsWith("{\"jobs\":3,\"failed\":1"));
+    }
+
+    @Test
+    void testMalformedJobIsReportedAndSkipped() throws Exception {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(1);
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        int failed = new BatchRunner(engine, new PrintStream(report, true, StandardCharsets.UTF_8))
+                .run(new BufferedReader(new StringReader("{\"input\": \"x.json\"}\nnot json\n")));
+        engine.shutdown();
+
+        assertEquals(2, failed);
+        String text = report.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("needs both"));
+        assertTrue(text.contains("not valid JSON"));
+    }
+
+    @Test
+    void testTimedOutJobWritesError() throws Exception {
+        // 300 x 300 squared 30 times does not fit in 50 ms
+        StringBuilder matrix = new StringBuilder("[");
+        for (int i = 0; i < 300; i++) {
+            matrix.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < 300; j++) matrix.append(j == 0 ? "" : ",").append(1);
+            matrix.append("]");
+        }
+        matrix.append("]");
+        StringBuilder tree = new StringBuilder("{\"operator\": \"*\", \"operands\": [");
+        for (int t = 0; t < 30; t++) tree.append(t == 0 ? "" : ",").append(matrix);
+        Files.writeString(dir.resolve("slow.json"), tree.append("]}").toString());
+        String line = job("slow.json", "slow.out.json", null);
+        line = line.substring(0, line.length() - 1) + ", \"timeoutMillis\": 50}";
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        int failed = new BatchRunner(engine, new PrintStream(report, true, StandardCharsets.UTF_8))
+                .run(new BufferedReader(new StringReader(line)));
+        engine.shutdown();
+
+        assertEquals(1, failed);
+        assertTrue(Files.readString(dir.resolve("slow.out.json")).contains("timed out after 50 ms"));
+    }
+
+    @Test
+    void testMetricsAreWrittenNextToOutput() throws Exception {
+        Files.writeString(dir.resolve("m.json"), "{\"operator\": \"*\", \"operands\": [[[1, 2]], [[3], [4]]]}");
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        int failed = new BatchRunner(engine, new PrintStream(new ByteArrayOutputStream()), 0, true)
+                .run(new BufferedReader(new StringReader(job("m.json", "m.out.json", null))));
+        engine.shutdown();
+
+        assertEquals(0, failed);
+        assertEquals(dir.resolve("m.out.metrics.json").toString(), spl.lae.MetricsReport.pathFor(dir.resolve("m.out.json").toString()));
+        com.fasterxml.jackson.databind.JsonNode metrics = new com.fasterxml.jackson.databind.ObjectMapper()
+                .readTree(dir.resolve("m.out.metrics.json").toFile());
+        assertEquals("ok", metrics.get("status").asText());
+        assertEquals("MULTIPLY", metrics.get("nodes").get(0).get("operator").asText());
+        assertEquals(4, metrics.get("nodes").get(0).get("flops").asLong());
+        assertEquals(2, metrics.get("workers").size());
+        assertTrue(metrics.get("fatigueSpread").asDouble() >= 0);
+    }
+
+    @Test
+    void testCompactOutputHasNoWhitespace() throws Exception {
+        Files.writeString(dir.resolve("c.json"), "{\"operator\": \"+\", \"operands\": [[[1, 2], [3, 4]], [[1, 1], [1, 1]]]}");
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        int failed = new BatchRunner(engine, new PrintStream(new ByteArrayOutputStream()), 0, false, true)
+                .run(new BufferedReader(new StringReader(job("c.json", "c.out.json", null) + "\n"
+                        + job("missing.json", "e.out.json", null))));
+        engine.shutdown();
+
+        assertEquals(1, failed);
+        assertEquals("{\"result\":[[2.0,3.0],[4.0,5.0]]}", Files.readString(dir.resolve("c.out.json")));
+        assertTrue(Files.readString(dir.resolve("e.out.json")).startsWith("{\"error\":\""));
+    }
+
+    @Test
+    void testBinaryOutputErrorGoesToSidecar() throws Exception {
+        Files.writeString(dir.resolve("bad.json"), "{\"operator\": \"*\", \"operands\": [[[1, 2]], [[3, 4]]]}");
+        Files.writeString(dir.resolve("bad.mat"), "left over from an earlier run");
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(1);
+        int failed = new BatchRunner(engine, new PrintStream(new ByteArrayOutputStream()))
+                .run(new BufferedReader(new StringReader(job("bad.json", "bad.mat", null))));
+        engine.shutdown();
+
+        assertEquals(1, failed);
+        assertTrue(Files.notExists(dir.resolve("bad.mat")));
+        assertEquals(dir.resolve("bad.error.json").toString(), BatchRunner.errorPathFor(dir.resolve("bad.mat").toString()));
+        assertTrue(Files.readString(dir.resolve("bad.error.json")).contains("\"error\""));
+    }
+
+    private String job(String input, String output, String id) {
+        return "{" + (id == null ? "" : "\"id\": \"" + id + "\", ")
+                + "\"input\": \"" + dir.resolve(input).toString().replace("\\", "\\\\") + "\", "
+                + "\"output\": \"" + dir.resolve(output).toString().replace("\\", "\\\\") + "\"}";
+    }
+}
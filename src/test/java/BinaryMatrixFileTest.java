@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import memory.BinaryMatrixFile;
+import memory.SharedMatrix;
+import memory.VectorOrientation;
+
+public class BinaryMatrixFileTest {
+
+    @TempDir
+    Path dir;
+
+    private static final double[][] DATA = {
+        {1, 2, 3},
+        {4, 5, -6.25}
+    };
+
+    @Test
+    void testRoundTripKeepsOrientation() throws IOException {
+        Path file = dir.resolve("m.mat");
+        SharedMatrix columns = new SharedMatrix();
+        columns.loadColumnMajor(DATA);
+        BinaryMatrixFile.write(columns, file);
+        assertEquals(24 + 6 * 8, Files.size(file));
+
+        SharedMatrix read = BinaryMatrixFile.read(file);
+        assertEquals(VectorOrientation.COLUMN_MAJOR, read.getOrientation());
+        double[][] back = read.readRowMajor();
+        for (int i = 0; i < DATA.length; i++) {
+            assertArrayEquals(DATA[i], back[i]);
+        }
+    }
+
+    @Test
+    void testReadsFloat32() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(24 + 6 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(new byte[]{'L', 'A', 'E', 'M'}).putInt(1).putInt(2).putInt(3)
+                .putInt(BinaryMatrixFile.DTYPE_FLOAT32).putInt(0);
+        for (double[] row : DATA) for (double v : row) buffer.putFloat((float) v);
+        Path file = dir.resolve("f.mat");
+        Files.write(file, buffer.array());
+
+        double[][] back = BinaryMatrixFile.read(file).readRowMajor();
+        for (int i = 0; i < DATA.length; i++) {
+            assertArrayEquals(DATA[i], back[i]);
+        }
+    }
+
+    @Test
+    void testReadsAcrossBufferRefills() throws IOException {
+        // 333 x 517 doubles is about 1.3 MB, more than one read buffer, and no row ends on a buffer boundary
+        double[][] data = new double[333][517];
+        for (int i = 0; i < data.length; i++)
+            for (int j = 0; j < data[i].length; j++)
+                data[i][j] = i * 1000.5 - j;
+        Path file = dir.resolve("big.mat");
+        BinaryMatrixFile.write(data, file);
+        double[][] back = BinaryMatrixFile.read(file).readRowMajor();
+        for (int i = 0; i < data.length; i++) {
+            assertArrayEquals(data[i], back[i]);
+        }
+    }
+
+    @Test
+    void testRejectsTruncatedFile() throws IOException {
+        Path file = dir.resolve("t.mat");
+        BinaryMatrixFile.write(DATA, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 8));
+        assertThrows(IOException.class, () -> BinaryMatrixFile.read(file));
+    }
+}
@@ -0,0 +1,52 @@
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import scheduling.CancellationToken;
+import scheduling.JobCancelledException;
+
+public class CancellationTokenTest {
+
+    @Test
+    void testCancelAndDeadline() throws InterruptedException {
+        CancellationToken token = CancellationToken.create();
+        assertFalse(token.isCancelled());
+        token.cancel("stopped by test");
+        JobCancelledException e = assertThrows(JobCancelledException.class, token::throwIfCancelled);
+        assertTrue(e.getMessage().contains("stopped by test"));
+
+        CancellationToken timed = CancellationToken.withTimeout(20);
+        Thread.sleep(40);
+        e = assertThrows(JobCancelledException.class, timed::throwIfCancelled);
+        assertTrue(e.getMessage().contains("timed out after 20 ms"));
+
+        CancellationToken.NONE.cancel("ignored");
+        assertFalse(CancellationToken.NONE.isCancelled());
+    }
+
+    @Test
+    void testCheckCurrentSeesTokenOfRunningTask() {
+        CancellationToken token = CancellationToken.create();
+        token.cancel(null);
+        assertThrows(JobCancelledException.class, () -> token.runWith(CancellationToken::checkCurrent));
+        // outside runWith the thread has no current token
+        assertDoesNotThrow(CancellationToken::checkCurrent);
+    }
+
+    @Test
+    void testChildFollowsParentButNotTheOtherWay() {
+        CancellationToken child = CancellationToken.NONE.child();
+        child.cancel("failed: bad node");
+        assertTrue(child.isCancelled());
+        assertFalse(CancellationToken.NONE.isCancelled());
+
+        CancellationToken parent = CancellationToken.create();
+        CancellationToken other = parent.child();
+        parent.cancel("stopped by test");
+        JobCancelledException e = assertThrows(JobCancelledException.class, other::throwIfCancelled);
+        assertTrue(e.getMessage().contains("stopped by test"));
+    }
+}
@@ -0,0 +1,118 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import memory.CsrMatrix;
+import memory.SharedMatrix;
+
+public class CsrMatrixTest {
+
+    // rows x cols with roughly density non-zeros, fixed seed
+    private static double[][] randomSparse(int rows, int cols, double density, long seed) {
+        Random random = new Random(seed);
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (random.nextDouble() < density) {
+                    m[i][j] = random.nextInt(9) + 1;
+                }
+            }
+        }
+        return m;
+    }
+
+    private static double[][] multiply(double[][] a, double[][] b) {
+        double[][] c = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++)
+            for (int p = 0; p < b.length; p++)
+                for (int j = 0; j < b[0].length; j++)
+                    c[i][j] += a[i][p] * b[p][j];
+        return c;
+    }
+
+    private static void assertMatrixEquals(double[][] expected, double[][] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual[i]);
+        }
+    }
+
+    @Test
+    void testRoundTripAndDensity() {
+        double[][] data = {{0, 2, 0}, {0, 0, 0}, {5, 0, 6}};
+        CsrMatrix m = CsrMatrix.fromDense(data);
+        assertEquals(3, m.nnz());
+        assertEquals(3.0 / 9, m.density());
+        assertMatrixEquals(data, m.toDense());
+        assertMatrixEquals(data, m.toSharedMatrix().readRowMajor());
+    }
+
+    @Test
+    void testFromDenseIfSparseRejectsDenseInput() {
+        assertNull(CsrMatrix.fromDenseIfSparse(new double[][]{{1, 2}, {3, 0}}, 0.5));
+        assertNotNull(CsrMatrix.fromDenseIfSparse(new double[][]{{1, 0}, {3, 0}}, 0.5));
+    }
+
+    @Test
+    void testNegateAndTranspose() {
+        double[][] data = randomSparse(7, 4, 0.3, 1);
+        CsrMatrix m = CsrMatrix.fromDense(data);
+        double[][] transposed = m.transpose().toDense();
+        double[][] negated = m.negate().toDense();
+        for (int i = 0; i < 7; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(data[i][j], transposed[j][i]);
+                assertEquals(-data[i][j], negated[i][j], 0.0); // no stored entry for -0.0
+            }
+        }
+    }
+
+    @Test
+    void testSparseSparseKernelsInBlocks() {
+        double[][] a = randomSparse(20, 15, 0.2, 2);
+        double[][] b = randomSparse(20, 15, 0.2, 3);
+        double[][] c = randomSparse(15, 9, 0.2, 4);
+        CsrMatrix sa = CsrMatrix.fromDense(a);
+        CsrMatrix sb = CsrMatrix.fromDense(b);
+        CsrMatrix sc = CsrMatrix.fromDense(c);
+
+        CsrMatrix sum = CsrMatrix.concatRows(new CsrMatrix[]{sa.addRows(sb, 0, 7), sa.addRows(sb, 7, 20)}, 15);
+        double[][] expectedSum = new double[20][15];
+        for (int i = 0; i < 20; i++)
+            for (int j = 0; j < 15; j++)
+                expectedSum[i][j] = a[i][j] + b[i][j];
+        assertMatrixEquals(expectedSum, sum.toDense());
+
+        CsrMatrix product = CsrMatrix.concatRows(new CsrMatrix[]{sa.multiplyRows(sc, 0, 11), sa.multiplyRows(sc, 11, 20)}, 9);
+        assertMatrixEquals(multiply(a, c), product.toDense());
+    }
+
+    @Test
+    void testMixedKernels() {
+        double[][] sparse = randomSparse(12, 10, 0.15, 5);
+        double[][] dense = randomSparse(10, 6, 1.0, 6);
+        double[][] denseLeft = randomSparse(8, 12, 1.0, 7);
+        CsrMatrix s = CsrMatrix.fromDense(sparse);
+
+        SharedMatrix out = new SharedMatrix(12, 6);
+        s.multiplyRowsInto(new SharedMatrix(dense), out, 0, 12);
+        assertMatrixEquals(multiply(sparse, dense), out.readRowMajor());
+
+        SharedMatrix out2 = new SharedMatrix(8, 10);
+        s.multiplyDenseRowsInto(new SharedMatrix(denseLeft), out2, 0, 8);
+        assertMatrixEquals(multiply(denseLeft, sparse), out2.readRowMajor());
+
+        double[][] other = randomSparse(12, 10, 1.0, 8);
+        SharedMatrix target = new SharedMatrix(other);
+        s.addRowsInto(target, 0, 12);
+        double[][] sum = target.readRowMajor();
+        for (int i = 0; i < 12; i++)
+            for (int j = 0; j < 10; j++)
+                assertEquals(other[i][j] + sparse[i][j], sum[i][j]);
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import parser.ExecutionPlan;
+
+public class ExecutionPlanTest {
+
+    private static ComputationNode node(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new ArrayList<>(List.of(children)));
+    }
+
+    @Test
+    void testParentIsQueuedBehindReadySiblings() {
+        // +(-(-(a)), -(b))
+        ComputationNode inner = node(ComputationNodeType.NEGATE, new ComputationNode(new double[][]{{1}}));
+        ComputationNode outer = node(ComputationNodeType.NEGATE, inner);
+        ComputationNode right = node(ComputationNodeType.NEGATE, new ComputationNode(new double[][]{{2}}));
+        ComputationNode root = node(ComputationNodeType.ADD, outer, right);
+        ExecutionPlan plan = new ExecutionPlan(root);
+        assertEquals(4, plan.size());
+
+        List<ComputationNode> order = new ArrayList<>();
+        for (ComputationNode next = plan.nextReady(); next != null; next = plan.nextReady()) {
+            order.add(next);
+            plan.resolved(next);
+        }
+        // the leaves' parents in left-to-right order first, then whatever they unblocked
+        assertEquals(List.of(inner, right, outer, root), order);
+        assertTrue(plan.isDone());
+    }
+
+    @Test
+    void testNothingIsReadyBeforeItsChildren() {
+        ComputationNode left = node(ComputationNodeType.NEGATE, new ComputationNode(new double[][]{{1}}));
+        ComputationNode root = node(ComputationNodeType.TRANSPOSE, left);
+        ExecutionPlan plan = new ExecutionPlan(root);
+        assertSame(left, plan.nextReady());
+        assertNull(plan.nextReady());
+        plan.resolved(left);
+        assertSame(root, plan.nextReady());
+    }
+
+    @Test
+    void testIndexIsPostOrder() {
+        // +(-(-(a)), -(b)): the plan yields -(b) before -(-(a)), the indices stay in post-order
+        ComputationNode inner = node(ComputationNodeType.NEGATE, new ComputationNode(new double[][]{{1}}));
+        ComputationNode outer = node(ComputationNodeType.NEGATE, inner);
+        ComputationNode right = node(ComputationNodeType.NEGATE, new ComputationNode(new double[][]{{2}}));
+        ComputationNode root = node(ComputationNodeType.ADD, outer, right);
+        ExecutionPlan plan = new ExecutionPlan(root);
+        assertEquals(0, plan.indexOf(inner));
+        assertEquals(1, plan.indexOf(outer));
+        assertEquals(2, plan.indexOf(right));
+        assertEquals(3, plan.indexOf(root));
+        assertThrows(IllegalArgumentException.class, () -> plan.indexOf(node(ComputationNodeType.NEGATE, inner)));
+    }
+}
@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import memory.BinaryMatrixFile;
+import memory.CsrMatrix;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import parser.InputParser;
+
+public class InputParserTest {
+
+    @TempDir
+    Path dir;
+
+    private ComputationNode parse(String json) throws IOException, ParseException {
+        Path file = dir.resolve("input.json");
+        Files.writeString(file, json);
+        return new InputParser().parse(file.toString());
+    }
+
+    @Test
+    void testParsesOperatorTree() throws Exception {
+        // operands before operator and an unknown key must both be accepted
+        ComputationNode root = parse("{\"operands\": [[[1, 2.5], [3, -4]], {\"operator\": \"T\", \"operands\": [[[1e2]]]}], \"note\": {\"x\": [1]}, \"operator\": \"+\"}");
+        assertEquals(ComputationNodeType.ADD, root.getNodeType());
+        assertEquals(2, root.getChildren().size());
+        double[][] m = root.getChildren().get(0).getMatrix();
+        assertArrayEquals(new double[]{1, 2.5}, m[0]);
+        assertArrayEquals(new double[]{3, -4}, m[1]);
+        ComputationNode t = root.getChildren().get(1);
+        assertEquals(ComputationNodeType.TRANSPOSE, t.getNodeType());
+        assertEquals(100.0, t.getChildren().get(0).getMatrix()[0][0]);
+    }
+
+    @Test
+    void testWideFirstRowGrowsBuffer() throws Exception {
+        StringBuilder json = new StringBuilder("[[");
+        for (int j = 0; j < 300; j++) json.append(j == 0 ? "" : ",").append(j);
+        json.append("],[");
+        for (int j = 0; j < 300; j++) json.append(j == 0 ? "" : ",").append(-j);
+        json.append("]]");
+        double[][] m = parse(json.toString()).getMatrix();
+        assertEquals(300, m[0].length);
+        assertEquals(299.0, m[0][299]);
+        assertEquals(-299.0, m[1][299]);
+    }
+
+    @Test
+    void testRejectsMalformedMatrices() {
+        ParseException ragged = assertThrows(ParseException.class, () -> parse("[[1, 2], [3]]"));
+        assertTrue(ragged.getMessage().contains("Inconsistent row sizes"));
+        ParseException tooLong = assertThrows(ParseException.class, () -> parse("[[1, 2], [3, 4, 5]]"));
+        assertTrue(tooLong.getMessage().contains("Inconsistent row sizes"));
+        ParseException vector = assertThrows(ParseException.class, () -> parse("[1, 2]"));
+        assertTrue(vector.getMessage().contains("Vectors"));
+        ParseException empty = assertThrows(ParseException.class, () -> parse("[]"));
+        assertTrue(empty.getMessage().contains("Empty array"));
+        assertThrows(ParseException.class, () -> parse("{\"operator\": \"+\"}"));
+        assertThrows(ParseException.class, () -> parse("[[1, \"x\"]]"));
+        assertThrows(ParseException.class, () -> parse("[[1, 2]"));
+    }
+
+    private static String identity(int n) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < n; i++) {
+            json.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < n; j++) json.append(j == 0 ? "" : ",").append(i == j ? 1 : 0);
+            json.append("]");
+        }
+        return json.append("]").toString();
+    }
+
+    @Test
+    void testMostlyZeroMatrixIsParsedAsSparseWhenEnabled() throws Exception {
+        Files.writeString(dir.resolve("identity.json"), identity(80));
+        InputParser sparse = new InputParser(CsrMatrix.DEFAULT_MAX_DENSITY);
+        ComputationNode identity = sparse.parse(dir.resolve("identity.json").toString());
+        assertEquals(80, identity.getSparseMatrix().nnz());
+        assertEquals(1.0, identity.getMatrix()[7][7]);
+
+        // below MIN_SPARSE_ELEMENTS conversion is never worth it
+        Files.writeString(dir.resolve("small.json"), identity(30));
+        assertEquals(null, sparse.parse(dir.resolve("small.json").toString()).getSparseMatrix());
+    }
+
+    @Test
+    void testDefaultParserKeepsEveryMatrixDense() throws Exception {
+        // CSR would drop the sign of -0.0, so the default output contract needs dense operands
+        assertEquals(null, parse(identity(80)).getSparseMatrix());
+        ComputationNode zeros = parse("[[-0.0, 0], [0, 0]]");
+        assertEquals(null, zeros.getSparseMatrix());
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(zeros.getMatrix()[0][0]));
+    }
+
+    @Test
+    void testBinaryFileLeaf() throws Exception {
+        BinaryMatrixFile.write(new double[][]{{1, 2}, {3, 4}}, dir.resolve("a.mat"));
+        ComputationNode root = parse("{\"operator\": \"-\", \"operands\": [{\"file\": \"a.mat\"}]}");
+        ComputationNode leaf = root.getChildren().get(0);
+        assertEquals(ComputationNodeType.MATRIX, leaf.getNodeType());
+        assertArrayEquals(new double[]{3, 4}, leaf.getMatrix()[1]);
+        assertThrows(ParseException.class, () -> parse("{\"file\": \"missing.mat\"}"));
+    }
+}
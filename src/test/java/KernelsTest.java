@@ -0,0 +1,134 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import memory.KernelBackend;
+import memory.Kernels;
+
+public class KernelsTest {
+
+    private static final double EPS = 1e-9;
+
+    @Test
+    void testVectorBackendIsOptIn() {
+        // surefire runs with --add-modules jdk.incubator.vector, once as is and once with -Dlae.kernels=vector
+        KernelBackend vector = Kernels.vectorApi();
+        assertNotNull(vector);
+        boolean optedIn = "vector".equals(System.getProperty(Kernels.PROPERTY));
+        assertSame(optedIn ? vector : Kernels.scalar(), Kernels.backend());
+    }
+
+    @Test
+    void testElementwiseKernelsMatchScalar() {
+        KernelBackend scalar = Kernels.scalar();
+        KernelBackend vector = Kernels.vectorApi();
+        Random random = new Random(3);
+        // lengths around the lane count and its multiples, at odd offsets
+        for (int n : new int[]{0, 1, 3, 4, 7, 8, 15, 16, 17, 33, 100, 1001}) {
+            double[] a = random(random, n + 5);
+            double[] b = random(random, n + 3);
+            assertEquals(scalar.dot(a, 5, b, 3, n), vector.dot(a, 5, b, 3, n), EPS * Math.max(1, n));
+
+            double[] x = a.clone(), y = a.clone();
+            scalar.add(x, 5, b, 3, n);
+            vector.add(y, 5, b, 3, n);
+            assertEquals(java.util.Arrays.toString(x), java.util.Arrays.toString(y));
+
+            scalar.negate(x, 2, n);
+            vector.negate(y, 2, n);
+            assertEquals(java.util.Arrays.toString(x), java.util.Arrays.toString(y));
+        }
+    }
+
+    @Test
+    void testGemmMatchesScalar() {
+        KernelBackend scalar = Kernels.scalar();
+        KernelBackend vector = Kernels.vectorApi();
+        Random random = new Random(5);
+        // deeper than one KC block, wider than one NC block, row and column counts off the register blocks
+        int[][] shapes = {{1, 1, 1}, {3, 5, 7}, {4, 9, 16}, {6, 150, 270}, {9, 131, 37}};
+        for (int[] shape : shapes) {
+            int rows = shape[0], inner = shape[1], cols = shape[2];
+            double[][] a = new double[rows][];
+            int[] aOff = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                aOff[i] = i % 3;
+                a[i] = random(random, inner + aOff[i]);
+            }
+            double[][] bRows = new double[inner][];
+            int[] bRowOff = new int[inner];
+            for (int p = 0; p < inner; p++) {
+                bRowOff[p] = 1;
+                bRows[p] = random(random, cols + 1);
+            }
+            double[][] bCols = new double[cols][inner];
+            int[] bColOff = new int[cols];
+            for (int p = 0; p < inner; p++)
+                for (int j = 0; j < cols; j++)
+                    bCols[j][p] = bRows[p][1 + j];
+
+            double[][] expected = new double[rows][cols];
+            double[][] rowMajor = new double[rows][cols];
+            double[][] columnMajor = new double[rows][cols];
+            int[] cOff = new int[rows];
+            scalar.multiplyRowMajor(a, aOff, bRows, bRowOff, expected, cOff, inner, cols);
+            vector.multiplyRowMajor(a, aOff, bRows, bRowOff, rowMajor, cOff, inner, cols);
+            vector.multiplyColumnMajor(a, aOff, bCols, bColOff, columnMajor, cOff, inner, cols);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    assertEquals(expected[i][j], rowMajor[i][j], EPS * inner);
+                    assertEquals(expected[i][j], columnMajor[i][j], EPS * inner);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testScalarGemmRoundsLikeTheNaiveDotProduct() {
+        KernelBackend scalar = Kernels.scalar();
+        Random random = new Random(7);
+        // 6 rows is one register block plus two leftover rows; 150 and 131 are deeper than one KC block
+        int[][] shapes = {{6, 150, 270}, {7, 131, 37}, {5, 9, 3}};
+        for (int[] shape : shapes) {
+            int rows = shape[0], inner = shape[1], cols = shape[2];
+            double[][] a = new double[rows][];
+            for (int i = 0; i < rows; i++) a[i] = random(random, inner);
+            double[][] bRows = new double[inner][];
+            for (int p = 0; p < inner; p++) bRows[p] = random(random, cols);
+            double[][] bCols = new double[cols][inner];
+            for (int p = 0; p < inner; p++)
+                for (int j = 0; j < cols; j++)
+                    bCols[j][p] = bRows[p][j];
+
+            double[][] naive = new double[rows][cols];
+            for (int i = 0; i < rows; i++)
+                for (int j = 0; j < cols; j++)
+                    for (int p = 0; p < inner; p++)
+                        naive[i][j] += a[i][p] * bRows[p][j];
+
+            double[][] blocked = new double[rows][cols];
+            scalar.multiplyRowMajor(a, new int[rows], bRows, new int[inner], blocked, new int[rows], inner, cols);
+            double[][] columnMajor = new double[rows][cols];
+            scalar.multiplyColumnMajor(a, new int[rows], bCols, new int[cols], columnMajor, new int[rows], inner, cols);
+            for (int i = 0; i < rows; i++) {
+                // one row at a time takes the leftover-row path, as a chunk boundary would
+                double[][] single = new double[1][cols];
+                scalar.multiplyRowMajor(new double[][]{a[i]}, new int[1], bRows, new int[inner], single, new int[1], inner, cols);
+                assertArrayEquals(naive[i], blocked[i]);
+                assertArrayEquals(naive[i], single[0]);
+                assertArrayEquals(naive[i], columnMajor[i]);
+            }
+        }
+    }
+
+    private static double[] random(Random random, int n) {
+        double[] v = new double[n];
+        for (int i = 0; i < n; i++) v[i] = random.nextDouble() * 2 - 1;
+        return v;
+    }
+}
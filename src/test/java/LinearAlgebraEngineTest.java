@@ -1,6 +1,9 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.lang.reflect.Method;
@@ -8,9 +11,11 @@ import java.util.List;
 import java.lang.reflect.Field;
 import org.junit.jupiter.api.Test;
 
+import memory.CsrMatrix;
 import memory.SharedMatrix;
 import parser.ComputationNode;
 import parser.ComputationNodeType;
+import spl.lae.ExecutionMode;
 import spl.lae.LinearAlgebraEngine;
 
 public class LinearAlgebraEngineTest {
@@ -100,6 +105,51 @@ public class LinearAlgebraEngineTest {
         assertEquals(2, tasks.size(), "Should create 1 task per row for transpose");
     }
 
+    @Test
+    void testAddTasksAreChunked() throws Exception {
+        double[][] data = new double[10_000][4];
+        for (int i = 0; i < data.length; i++) {
+            data[i][0] = i;
+        }
+        setPrivateField(engine, "leftMatrix", new SharedMatrix(data));
+        setPrivateField(engine, "rightMatrix", new SharedMatrix(data));
+        @SuppressWarnings("unchecked")
+        List<Runnable> tasks = (List<Runnable>) invokePrivateMethod(engine, "createAddTasks");
+        assertTrue(tasks.size() <= 4 * spl.lae.TaskPartitioner.CHUNKS_PER_THREAD, "rows should be grouped into chunks");
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        Field leftField = LinearAlgebraEngine.class.getDeclaredField("leftMatrix");
+        leftField.setAccessible(true);
+        SharedMatrix sum = (SharedMatrix) leftField.get(engine);
+        assertEquals(2.0 * 9_999, sum.get(9_999).get(0));
+    }
+
+    @Test
+    void testShortWideMultiplyUsesEveryWorker() throws Exception {
+        // 2 x 50 times 50 x 5000: two rows, but the product is big enough for tiles
+        double[][] a = new double[2][50];
+        double[][] b = new double[50][5000];
+        for (int p = 0; p < 50; p++) {
+            a[0][p] = 1;
+            a[1][p] = p;
+            for (int j = 0; j < 5000; j++) b[p][j] = j % 7;
+        }
+        setPrivateField(engine, "leftMatrix", new SharedMatrix(a));
+        setPrivateField(engine, "rightMatrix", new SharedMatrix(b));
+        @SuppressWarnings("unchecked")
+        List<Runnable> tasks = (List<Runnable>) invokePrivateMethod(engine, "createMultiplyTasks");
+        assertTrue(tasks.size() >= 4, "a 2-row product should still be split for 4 threads");
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        Field productField = LinearAlgebraEngine.class.getDeclaredField("productMatrix");
+        productField.setAccessible(true);
+        double[][] product = ((SharedMatrix) productField.get(engine)).readRowMajor();
+        assertEquals(50.0 * (4999 % 7), product[0][4999]);
+        assertEquals(1225.0 * (123 % 7), product[1][123]);
+    }
+
     @Test
     void testLoadAndCompute() {
         // This integration test verifies that matrices are loaded and tasks submitted
@@ -137,4 +187,501 @@ public class LinearAlgebraEngineTest {
         }
     }
 
+    @Test
+    void testRunHandsResultsBetweenNodes() {
+        // (A + B) * T(C): the sum is adopted by the multiply, the transpose is a view whose columns the multiply reads as rows
+        ComputationNode a = new ComputationNode(new double[][]{{1, 2}, {3, 4}});
+        ComputationNode b = new ComputationNode(new double[][]{{1, 0}, {0, 1}});
+        ComputationNode c = new ComputationNode(new double[][]{{1, 2}, {3, 4}});
+        ComputationNode sum = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(a, b)));
+        ComputationNode transposed = new ComputationNode(ComputationNodeType.TRANSPOSE, new java.util.ArrayList<>(List.of(c)));
+        ComputationNode root = new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(sum, transposed)));
+
+        double[][] result = engine.run(root).getMatrix();
+
+        // [[2, 2], [3, 5]] * [[1, 3], [2, 4]]
+        assertEquals(6.0, result[0][0]);
+        assertEquals(14.0, result[0][1]);
+        assertEquals(13.0, result[1][0]);
+        assertEquals(29.0, result[1][1]);
+    }
+
+    @Test
+    void testParallelDagMatchesSequential() {
+        LinearAlgebraEngine parallel = new LinearAlgebraEngine(4, ExecutionMode.PARALLEL_DAG);
+        double[][] expected = engine.run(buildIndependentSubtrees()).getMatrix();
+        double[][] actual = parallel.run(buildIndependentSubtrees()).getMatrix();
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual[i]);
+        }
+    }
+
+    @Test
+    void testParallelDagReportsTaskFailure() {
+        LinearAlgebraEngine parallel = new LinearAlgebraEngine(2, ExecutionMode.PARALLEL_DAG);
+        ComputationNode bad = new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                new ComputationNode(new double[][]{{1, 2}}),
+                new ComputationNode(new double[][]{{1, 2}}))));
+        assertThrows(IllegalArgumentException.class, () -> parallel.run(bad));
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 30, unit = java.util.concurrent.TimeUnit.SECONDS)
+    void testParallelDagFailureDropsSiblingTasks() throws InterruptedException {
+        // one worker: the failing add is launched first, the big multiply queues its chunks behind it
+        // and is cancelled when the add fails
+        LinearAlgebraEngine parallel = new LinearAlgebraEngine(1, ExecutionMode.PARALLEL_DAG);
+        parallel.setStrassenThreshold(0);
+        ComputationNode root = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(mismatchedAdd(3), bigChain(2800, 2))));
+        assertThrows(ArithmeticException.class, () -> parallel.run(root));
+
+        // the next run only waits for the chunk that was already running, not for the whole multiply
+        long start = System.nanoTime();
+        ComputationNode small = negate(new ComputationNode(new double[][]{{1, 2}}));
+        assertArrayEquals(new double[]{-1, -2}, parallel.run(small).getMatrix()[0]);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(millis < 1000, "next run waited " + millis + " ms behind the failed job");
+        parallel.shutdown();
+    }
+
+    @Test
+    void testParallelDagReportsLowestPlanIndexFailure() throws InterruptedException {
+        // the left operand fails late, after its multiply, the right one fails at once; the left one
+        // comes first in the plan, so its error is reported every time
+        LinearAlgebraEngine parallel = new LinearAlgebraEngine(3, ExecutionMode.PARALLEL_DAG);
+        for (int attempt = 0; attempt < 5; attempt++) {
+            double[][] wide = new double[300][301];
+            for (double[] row : wide) java.util.Arrays.fill(row, 1.0);
+            ComputationNode late = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(
+                    bigChain(300, 2), new ComputationNode(wide))));
+            ComputationNode root = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(late, mismatchedAdd(4))));
+            RuntimeException e = assertThrows(RuntimeException.class, () -> parallel.run(root));
+            assertTrue(e.getMessage().contains("301"), "reported " + e.getMessage());
+        }
+        parallel.shutdown();
+    }
+
+    // 2x2 + 2xcolumns: the row counts agree, so the add is launched and its task fails
+    private static ComputationNode mismatchedAdd(int columns) {
+        double[][] right = new double[2][columns];
+        for (double[] row : right) java.util.Arrays.fill(row, 1.0);
+        return new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(
+                new ComputationNode(new double[][]{{1, 2}, {3, 4}}), new ComputationNode(right))));
+    }
+
+    // -((A * B) + (C * D)) + T(A * C): three multiplies that do not depend on each other
+    private ComputationNode buildIndependentSubtrees() {
+        double[][] a = {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}};
+        double[][] b = {{9, 8, 7}, {6, 5, 4}, {3, 2, 1}};
+        double[][] c = {{1, 0, 2}, {0, 1, 0}, {2, 0, 1}};
+        double[][] d = {{0, 1, 0}, {1, 0, 1}, {0, 1, 0}};
+        ComputationNode ab = new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(new ComputationNode(a), new ComputationNode(b))));
+        ComputationNode cd = new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(new ComputationNode(c), new ComputationNode(d))));
+        ComputationNode sum = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(ab, cd)));
+        ComputationNode negated = new ComputationNode(ComputationNodeType.NEGATE, new java.util.ArrayList<>(List.of(sum)));
+        ComputationNode ac = new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(new ComputationNode(a), new ComputationNode(c))));
+        ComputationNode transposed = new ComputationNode(ComputationNodeType.TRANSPOSE, new java.util.ArrayList<>(List.of(ac)));
+        return new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(negated, transposed)));
+    }
+
+    @Test
+    void testLongChainResolvesInOrder() {
+        // 2000 additions nest into a 2000 deep chain, every step must pick up the parent of the last one
+        int terms = 2000;
+        List<ComputationNode> operands = new java.util.ArrayList<>();
+        for (int i = 0; i < terms; i++) {
+            operands.add(new ComputationNode(new double[][]{{1, 2}, {3, 4}}));
+        }
+        ComputationNode root = new ComputationNode(ComputationNodeType.ADD, operands);
+        double[][] result = engine.run(root).getMatrix();
+        assertArrayEquals(new double[]{terms, 2.0 * terms}, result[0]);
+        assertArrayEquals(new double[]{3.0 * terms, 4.0 * terms}, result[1]);
+    }
+
+    @Test
+    void testMultiplyChainIsReorderedByCost() {
+        // (100x2)(2x100)(100x2)(2x100): left-assoc builds 100x100 products, A(BC)D stays thin
+        double[][] tall = new double[100][2];
+        double[][] wide = new double[2][100];
+        for (int i = 0; i < 100; i++) {
+            tall[i][0] = i % 3;
+            tall[i][1] = 1;
+            wide[0][i] = 1;
+            wide[1][i] = i % 5;
+        }
+        double[][] expected = multiply(multiply(multiply(tall, wide), tall), wide);
+
+        List<ComputationNode> operands = new java.util.ArrayList<>(List.of(
+                new ComputationNode(tall), new ComputationNode(wide), new ComputationNode(tall), new ComputationNode(wide)));
+        ComputationNode root = new ComputationNode(ComputationNodeType.MULTIPLY, operands);
+        double[][] result = engine.run(root).getMatrix();
+
+        assertTrue(engine.getEstimatedFlopsSaved() > 0);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], result[i]);
+        }
+    }
+
+    @Test
+    void testNegatedZerosKeepTheirSignUnlessRelaxed() {
+        // (-A) + (-B): -0.0 + 0.0 is 0.0, the relaxed -(A + B) gives -(0.0 + -0.0) = -0.0
+        for (boolean relaxed : new boolean[]{false, true}) {
+            LinearAlgebraEngine signs = new LinearAlgebraEngine(2);
+            signs.setRelaxedRewrites(relaxed);
+            ComputationNode root = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(
+                    negate(new ComputationNode(new double[][]{{0.0, 1.0}})),
+                    negate(new ComputationNode(new double[][]{{-0.0, 2.0}})))));
+            double[] result = signs.run(root).getMatrix()[0];
+            assertEquals(relaxed ? -0.0 : 0.0, result[0]);
+            assertEquals(-3.0, result[1]);
+        }
+    }
+
+    @Test
+    void testAlgebraicRewritesKeepTheResult() {
+        // -(T(T(T(T(A))) * B) + -(-C)) + -(D * -E), A 3x2, B 3x3, C 3x2, D 3x3, E 3x2
+        double[][] a = {{1, 2}, {3, 4}, {5, 6}};
+        double[][] b = {{1, 0, 2}, {0, 1, 0}, {-1, 1, 1}};
+        double[][] c = {{1, 1}, {2, 2}, {3, 3}};
+        double[][] d = {{2, 0, 1}, {1, 3, 0}, {0, 1, 1}};
+        double[][] e = {{1, 2}, {3, 4}, {5, 6}};
+        // T(T(A) * B) = T(B) * A
+        double[][] bta = multiply(new double[][]{{1, 0, -1}, {0, 1, 1}, {2, 0, 1}}, a);
+        double[][] de = multiply(d, e);
+        double[][] expected = new double[3][2];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 2; j++) {
+                expected[i][j] = -(bta[i][j] + c[i][j]) + de[i][j];
+            }
+        }
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            LinearAlgebraEngine rewritten = new LinearAlgebraEngine(2, mode);
+            rewritten.setRelaxedRewrites(true); // integer entries, so every fold is exact here
+            ComputationNode inner = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(
+                    transpose(new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                            transpose(transpose(transpose(new ComputationNode(a)))), new ComputationNode(b))))),
+                    negate(negate(new ComputationNode(c))))));
+            ComputationNode root = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(
+                    negate(inner),
+                    negate(new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                            new ComputationNode(d), negate(new ComputationNode(e)))))))));
+            double[][] result = rewritten.run(root).getMatrix();
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], result[i]);
+            }
+            List<parser.AlgebraicRewriter.Rule> rules = rewritten.getLastProfile().getRewrites();
+            assertTrue(rules.containsAll(List.of(parser.AlgebraicRewriter.Rule.DOUBLE_TRANSPOSE,
+                    parser.AlgebraicRewriter.Rule.TRANSPOSE_PUSHDOWN, parser.AlgebraicRewriter.Rule.DOUBLE_NEGATION)), rules.toString());
+            // T(B) * A, the sum with C, its negation, D * E and the final sum
+            List<String> ran = rewritten.getLastProfile().getNodes().stream().map(spl.lae.NodeProfile::operator).toList();
+            assertEquals(1, ran.stream().filter("NEGATE"::equals).count(), ran.toString());
+            assertEquals(1, ran.stream().filter("TRANSPOSE"::equals).count(), ran.toString());
+        }
+    }
+
+    @Test
+    void testSparseOperandsMatchDense() {
+        // (S1 * S2 + D) * T(-S1): sparse x sparse, sparse + dense, dense x sparse
+        double[][] s1 = new double[30][30];
+        double[][] s2 = new double[30][30];
+        double[][] d = new double[30][30];
+        for (int i = 0; i < 30; i++) {
+            s1[i][(i * 7) % 30] = i + 1;
+            s2[(i * 11) % 30][i] = 2;
+            for (int j = 0; j < 30; j++) {
+                d[i][j] = (i + j) % 4;
+            }
+        }
+        double[][] expected = engine.run(buildSparseTree(new ComputationNode(s1), new ComputationNode(s2), new ComputationNode(d), new ComputationNode(s1))).getMatrix();
+        ComputationNode sparseRoot = buildSparseTree(new ComputationNode(CsrMatrix.fromDense(s1)), new ComputationNode(CsrMatrix.fromDense(s2)),
+                new ComputationNode(d), new ComputationNode(CsrMatrix.fromDense(s1)));
+        double[][] actual = new LinearAlgebraEngine(3, ExecutionMode.PARALLEL_DAG).run(sparseRoot).getMatrix();
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected[i].length; j++) {
+                assertEquals(expected[i][j], actual[i][j], 1e-9);
+            }
+        }
+    }
+
+    private ComputationNode buildSparseTree(ComputationNode s1, ComputationNode s2, ComputationNode d, ComputationNode s1Again) {
+        ComputationNode product = new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(s1, s2)));
+        ComputationNode sum = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(product, d)));
+        ComputationNode negated = new ComputationNode(ComputationNodeType.NEGATE, new java.util.ArrayList<>(List.of(s1Again)));
+        ComputationNode transposed = new ComputationNode(ComputationNodeType.TRANSPOSE, new java.util.ArrayList<>(List.of(negated)));
+        return new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(sum, transposed)));
+    }
+
+    @Test
+    void testRunAsyncJobsShareOneEngine() throws Exception {
+        LinearAlgebraEngine shared = new LinearAlgebraEngine(3);
+        double[][] expected = engine.run(buildIndependentSubtrees()).getMatrix();
+
+        List<java.util.concurrent.CompletableFuture<ComputationNode>> jobs = new java.util.ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            jobs.add(shared.runAsync(buildIndependentSubtrees()));
+        }
+        Thread caller = Thread.currentThread();
+        java.util.concurrent.CompletableFuture<Thread> callbackThread =
+                jobs.get(0).thenApply(result -> Thread.currentThread());
+        java.util.concurrent.CompletableFuture.allOf(jobs.toArray(new java.util.concurrent.CompletableFuture[0]))
+                .get(10, java.util.concurrent.TimeUnit.SECONDS);
+
+        for (java.util.concurrent.CompletableFuture<ComputationNode> job : jobs) {
+            double[][] actual = job.get().getMatrix();
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], actual[i]);
+            }
+        }
+        assertTrue(callbackThread.get() != caller, "callbacks must not need the caller thread");
+        shared.shutdown();
+    }
+
+    @Test
+    void testRunAsyncReportsFailure() throws Exception {
+        LinearAlgebraEngine shared = new LinearAlgebraEngine(2);
+        ComputationNode bad = new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                new ComputationNode(new double[][]{{1, 2}}),
+                new ComputationNode(new double[][]{{1, 2}}))));
+        java.util.concurrent.CompletableFuture<ComputationNode> failed = shared.runAsync(bad);
+        java.util.concurrent.ExecutionException e = assertThrows(java.util.concurrent.ExecutionException.class,
+                () -> failed.get(5, java.util.concurrent.TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+
+        // a failed job does not affect the next one
+        ComputationNode ok = new ComputationNode(ComputationNodeType.NEGATE, new java.util.ArrayList<>(List.of(
+                new ComputationNode(new double[][]{{1, 2}}))));
+        assertArrayEquals(new double[]{-1, -2}, shared.runAsync(ok).get(5, java.util.concurrent.TimeUnit.SECONDS).getMatrix()[0]);
+        shared.shutdown();
+    }
+
+    @Test
+    void testRunProfileRecordsEveryNode() {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            LinearAlgebraEngine profiled = new LinearAlgebraEngine(2, mode);
+            // -(A * B) + C with A 2x3, B 3x4, C 2x4
+            ComputationNode product = new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                    new ComputationNode(new double[][]{{1, 2, 3}, {4, 5, 6}}),
+                    new ComputationNode(new double[3][4]))));
+            ComputationNode negate = new ComputationNode(ComputationNodeType.NEGATE, new java.util.ArrayList<>(List.of(product)));
+            ComputationNode root = new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(
+                    negate, new ComputationNode(new double[2][4]))));
+            profiled.run(root);
+
+            List<spl.lae.NodeProfile> nodes = profiled.getLastProfile().getNodes();
+            assertEquals(List.of("MULTIPLY", "NEGATE", "ADD"), nodes.stream().map(spl.lae.NodeProfile::operator).toList());
+            spl.lae.NodeProfile multiply = nodes.get(0);
+            assertArrayEquals(new int[]{2, 3}, multiply.inputShapes()[0]);
+            assertArrayEquals(new int[]{3, 4}, multiply.inputShapes()[1]);
+            assertArrayEquals(new int[]{2, 4}, multiply.outputShape());
+            assertEquals(2L * 2 * 3 * 4, multiply.flops());
+            assertEquals(8, nodes.get(2).flops());
+            for (spl.lae.NodeProfile node : nodes) {
+                assertTrue(node.tasks() > 0 && node.computeNanos() > 0 && node.loadNanos() > 0, node.toString());
+            }
+            assertTrue(profiled.getLastProfile().getTotalNanos() > 0);
+        }
+    }
+
+    @Test
+    void testProductIsBitIdenticalAtAnyThreadCount() throws InterruptedException {
+        // non-integer entries: a different summation order would show in the last bits
+        java.util.Random random = new java.util.Random(11);
+        double[][] a = new double[37][150];
+        double[][] b = new double[150][45];
+        for (double[] row : a) for (int j = 0; j < row.length; j++) row[j] = random.nextDouble() * 2 - 1;
+        for (double[] row : b) for (int j = 0; j < row.length; j++) row[j] = random.nextDouble() * 2 - 1;
+
+        double[][] expected = null;
+        for (int threads : new int[]{1, 3, 4}) {
+            LinearAlgebraEngine sized = new LinearAlgebraEngine(threads);
+            double[][] result = sized.run(new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                    new ComputationNode(a), new ComputationNode(b))))).getMatrix();
+            sized.shutdown();
+            if (expected == null) {
+                expected = result;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], result[i], threads + " threads, row " + i);
+            }
+        }
+    }
+
+    @Test
+    void testStrassenSelectorMatchesBlockedKernel() {
+        java.util.Random random = new java.util.Random(9);
+        double[][] a = new double[70][65];
+        double[][] b = new double[65][72];
+        for (double[] row : a) for (int j = 0; j < row.length; j++) row[j] = random.nextInt(9) - 4;
+        for (double[] row : b) for (int j = 0; j < row.length; j++) row[j] = random.nextInt(9) - 4;
+
+        LinearAlgebraEngine blocked = new LinearAlgebraEngine(2);
+        blocked.setStrassenThreshold(0);
+        double[][] expected = blocked.run(new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                new ComputationNode(a), new ComputationNode(b))))).getMatrix();
+
+        LinearAlgebraEngine strassen = new LinearAlgebraEngine(2);
+        strassen.setStrassenThreshold(32);
+        double[][] actual = strassen.run(new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                new ComputationNode(a), new ComputationNode(b))))).getMatrix();
+
+        assertEquals(7, strassen.getLastProfile().getNodes().get(0).tasks());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual[i]);
+        }
+    }
+
+    @Test
+    void testStrassenIsSkippedWithMoreWorkersThanProducts() throws InterruptedException {
+        double[][] a = new double[64][64];
+        for (double[] row : a) java.util.Arrays.fill(row, 1);
+        LinearAlgebraEngine wide = new LinearAlgebraEngine(8);
+        wide.setStrassenThreshold(32);
+        double[][] result = wide.run(new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                new ComputationNode(a), new ComputationNode(a))))).getMatrix();
+        assertEquals(64.0, result[63][63]);
+        // the blocked kernel's chunks, not Strassen's seven products
+        assertTrue(wide.getLastProfile().getNodes().get(0).tasks() >= 8);
+        wide.shutdown();
+    }
+
+    @Test
+    void testTransposeIsFusedIntoItsConsumer() {
+        double[][] a = {{1, 2, 3}, {4, 5, 6}};
+        double[][] b = {{1, -1}, {2, 0}, {0, 3}};
+        double[][] bt = {{1, 2, 0}, {-1, 0, 3}};
+        double[][] c = {{1, 0, 2}, {0, 1, 1}};
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            LinearAlgebraEngine fused = new LinearAlgebraEngine(2, mode);
+            // A + T(B), T(B) * C and T(T(A)) * B: a view on each side of an ADD and on both sides of a MULTIPLY
+            double[][] sum = fused.run(new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(
+                    new ComputationNode(a), transpose(new ComputationNode(b)))))).getMatrix();
+            assertArrayEquals(new double[]{2, 4, 3}, sum[0]);
+            assertArrayEquals(new double[]{3, 5, 9}, sum[1]);
+            assertEquals(0, fused.getLastProfile().getNodes().get(0).tasks());
+
+            double[][] viewSum = fused.run(new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(
+                    transpose(new ComputationNode(b)), new ComputationNode(a))))).getMatrix();
+            assertArrayEquals(sum, viewSum);
+
+            double[][] product = fused.run(new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                    transpose(new ComputationNode(b)), transpose(new ComputationNode(c)))))).getMatrix();
+            double[][] ct = {{1, 0}, {0, 1}, {2, 1}};
+            double[][] expected = multiply(bt, ct);
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], product[i]);
+            }
+
+            double[][] twice = fused.run(new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                    transpose(transpose(new ComputationNode(a))), new ComputationNode(b))))).getMatrix();
+            expected = multiply(a, b);
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], twice[i]);
+            }
+        }
+    }
+
+    private static ComputationNode transpose(ComputationNode operand) {
+        return new ComputationNode(ComputationNodeType.TRANSPOSE, new java.util.ArrayList<>(List.of(operand)));
+    }
+
+    private static ComputationNode negate(ComputationNode operand) {
+        return new ComputationNode(ComputationNodeType.NEGATE, new java.util.ArrayList<>(List.of(operand)));
+    }
+
+    // n x n MULTIPLY of terms dense matrices, far more work than any deadline in these tests
+    private static ComputationNode bigChain(int n, int terms) {
+        List<ComputationNode> operands = new java.util.ArrayList<>();
+        for (int t = 0; t < terms; t++) {
+            double[][] m = new double[n][n];
+            for (int i = 0; i < n; i++) java.util.Arrays.fill(m[i], 1.0 / n);
+            operands.add(new ComputationNode(m));
+        }
+        return new ComputationNode(ComputationNodeType.MULTIPLY, operands);
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 20, unit = java.util.concurrent.TimeUnit.SECONDS)
+    void testDeadlineStopsRun() {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            LinearAlgebraEngine timed = new LinearAlgebraEngine(2, mode);
+            long start = System.nanoTime();
+            scheduling.JobCancelledException e = assertThrows(scheduling.JobCancelledException.class,
+                    () -> timed.run(bigChain(400, 40), scheduling.CancellationToken.withTimeout(100)));
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(e.getMessage().contains("timed out"));
+            assertTrue(millis < 5000, mode + " took " + millis + " ms to notice the deadline");
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 20, unit = java.util.concurrent.TimeUnit.SECONDS)
+    void testCancelledAsyncJobReleasesWorkers() throws Exception {
+        LinearAlgebraEngine shared = new LinearAlgebraEngine(2);
+        java.util.concurrent.CompletableFuture<ComputationNode> big = shared.runAsync(bigChain(400, 40));
+        Thread.sleep(50);
+        big.cancel(true);
+
+        // the next job gets the workers back instead of queueing behind the cancelled one
+        ComputationNode small = new ComputationNode(ComputationNodeType.NEGATE, new java.util.ArrayList<>(List.of(
+                new ComputationNode(new double[][]{{1, 2}}))));
+        assertArrayEquals(new double[]{-1, -2}, shared.runAsync(small).get(5, java.util.concurrent.TimeUnit.SECONDS).getMatrix()[0]);
+        shared.shutdown();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(value = 30, unit = java.util.concurrent.TimeUnit.SECONDS)
+    void testManyAsyncJobsMatchRun() throws Exception {
+        // T(A) * B + C per job: the transpose copy, the Strassen split and combine all run as scheduler tasks
+        int jobs = 24;
+        int n = 70;
+        java.util.Random random = new java.util.Random(13);
+        double[][][] a = new double[jobs][n][n], b = new double[jobs][n][n], c = new double[jobs][n][n];
+        for (int k = 0; k < jobs; k++)
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++) {
+                    a[k][i][j] = random.nextInt(9) - 4;
+                    b[k][i][j] = random.nextInt(9) - 4;
+                    c[k][i][j] = random.nextInt(9) - 4;
+                }
+
+        LinearAlgebraEngine shared = new LinearAlgebraEngine(3, ExecutionMode.PARALLEL_DAG);
+        shared.setStrassenThreshold(32);
+        List<java.util.concurrent.CompletableFuture<ComputationNode>> futures = new java.util.ArrayList<>();
+        for (int k = 0; k < jobs; k++) {
+            futures.add(shared.runAsync(transposedProductPlus(a[k], b[k], c[k])));
+        }
+        LinearAlgebraEngine reference = new LinearAlgebraEngine(1);
+        for (int k = 0; k < jobs; k++) {
+            double[][] expected = reference.run(transposedProductPlus(a[k], b[k], c[k])).getMatrix();
+            double[][] actual = futures.get(k).get(10, java.util.concurrent.TimeUnit.SECONDS).getMatrix();
+            for (int i = 0; i < n; i++) {
+                assertArrayEquals(expected[i], actual[i], "job " + k + ", row " + i);
+            }
+        }
+        shared.shutdown();
+        reference.shutdown();
+    }
+
+    private static ComputationNode transposedProductPlus(double[][] a, double[][] b, double[][] c) {
+        ComputationNode product = new ComputationNode(ComputationNodeType.MULTIPLY, new java.util.ArrayList<>(List.of(
+                transpose(new ComputationNode(copy(a))), new ComputationNode(copy(b)))));
+        return new ComputationNode(ComputationNodeType.ADD, new java.util.ArrayList<>(List.of(product, new ComputationNode(copy(c)))));
+    }
+
+    private static double[][] copy(double[][] m) {
+        double[][] copy = new double[m.length][];
+        for (int i = 0; i < m.length; i++) copy[i] = m[i].clone();
+        return copy;
+    }
+
+    private static double[][] multiply(double[][] a, double[][] b) {
+        double[][] c = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++)
+            for (int p = 0; p < b.length; p++)
+                for (int j = 0; j < b[0].length; j++)
+                    c[i][j] += a[i][p] * b[p][j];
+        return c;
+    }
+
 }
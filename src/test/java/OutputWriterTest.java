@@ -0,0 +1,36 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import parser.OutputWriter;
+
+public class OutputWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testPrettyLayoutIsUnchanged() throws Exception {
+        Path file = dir.resolve("out.json");
+        OutputWriter.write(new double[][]{{1, 2}, {3, -4.5}}, file.toString());
+        String expected = "{" + System.lineSeparator()
+                + "  \"result\" : [ [ 1.0, 2.0 ], [ 3.0, -4.5 ] ]" + System.lineSeparator()
+                + "}";
+        assertEquals(expected, Files.readString(file));
+    }
+
+    @Test
+    void testCompactMode() throws Exception {
+        Path file = dir.resolve("out.json");
+        OutputWriter.write(new double[][]{{1, 2}, {3, -4.5}}, file.toString(), true);
+        assertEquals("{\"result\":[[1.0,2.0],[3.0,-4.5]]}", Files.readString(file));
+
+        // a shorter second write must not leave the tail of the first one behind
+        OutputWriter.write("bad \"input\"", file.toString(), true);
+        assertEquals("{\"error\":\"bad \\\"input\\\"\"}", Files.readString(file));
+    }
+}
@@ -1,6 +1,9 @@
 import memory.SharedMatrix;
+import memory.SharedVector;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 public class SharedMatrixTest {
 
 
@@ -55,4 +58,172 @@ public class SharedMatrixTest {
             }
         }  
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRowsAreIndependentViews() {
+        // rows live in one slab, writing one row must not leak into its neighbours
+        SharedMatrix matrix = new SharedMatrix(new double[][]{
+            {1, 2},
+            {3, 4},
+            {5, 6}
+        });
+        matrix.get(1).negate();
+        matrix.get(0).vecMatMul(new SharedMatrix(new double[][]{
+            {1, 0, 1},
+            {0, 1, 1}
+        }));
+        assert(matrix.get(0).length() == 3);
+        assert(matrix.get(0).get(2) == 3);
+        assert(matrix.get(1).get(0) == -3 && matrix.get(1).get(1) == -4);
+        assert(matrix.get(2).get(0) == 5 && matrix.get(2).get(1) == 6);
+    }
+
+    @Test
+    void testLoadRowMajorRejectsRaggedRows() {
+        SharedMatrix matrix = new SharedMatrix();
+        assertThrows(IllegalArgumentException.class, () -> matrix.loadRowMajor(new double[][]{{1, 2}, {3}}));
+    }
+
+    @Test
+    void testMultiplyRowsIntoMatchesNaive() {
+        // shapes larger than one KC x NC block and not multiples of the register block
+        java.util.Random random = new java.util.Random(7);
+        int n = 6, k = 150, m = 270;
+        double[][] a = new double[n][k];
+        double[][] b = new double[k][m];
+        for (double[] row : a) for (int j = 0; j < k; j++) row[j] = random.nextInt(7) - 3;
+        for (double[] row : b) for (int j = 0; j < m; j++) row[j] = random.nextInt(7) - 3;
+
+        double[][] expected = new double[n][m];
+        for (int i = 0; i < n; i++)
+            for (int p = 0; p < k; p++)
+                for (int j = 0; j < m; j++)
+                    expected[i][j] += a[i][p] * b[p][j];
+
+        SharedMatrix left = new SharedMatrix(a);
+        SharedMatrix rowMajorRight = new SharedMatrix(b);
+        SharedMatrix columnMajorRight = new SharedMatrix();
+        columnMajorRight.loadColumnMajor(b);
+
+        for (SharedMatrix right : new SharedMatrix[]{rowMajorRight, columnMajorRight}) {
+            SharedMatrix out = new SharedMatrix(n, m);
+            left.multiplyRowsInto(right, out, 0, 5);
+            left.multiplyRowsInto(right, out, 5, n);
+            double[][] result = out.readRowMajor();
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < m; j++) {
+                    assert(result[i][j] == expected[i][j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testMultiplyTilesMatchVecMatMul() {
+        // 3 x 40 times 40 x 300, cut into 2 x 3 tiles of uneven width
+        java.util.Random random = new java.util.Random(11);
+        int n = 3, k = 40, m = 300;
+        double[][] a = new double[n][k];
+        double[][] b = new double[k][m];
+        for (double[] row : a) for (int j = 0; j < k; j++) row[j] = random.nextInt(7) - 3;
+        for (double[] row : b) for (int j = 0; j < m; j++) row[j] = random.nextInt(7) - 3;
+
+        SharedMatrix left = new SharedMatrix(a);
+        SharedMatrix columnMajorRight = new SharedMatrix();
+        columnMajorRight.loadColumnMajor(b);
+        for (SharedMatrix right : new SharedMatrix[]{new SharedMatrix(b), columnMajorRight}) {
+            SharedMatrix out = new SharedMatrix(n, m);
+            int[] rowCuts = {0, 2, n};
+            int[] colCuts = {0, 65, 200, m};
+            for (int r = 0; r < 2; r++)
+                for (int c = 0; c < 3; c++)
+                    left.multiplyTileInto(right, out, rowCuts[r], rowCuts[r + 1], colCuts[c], colCuts[c + 1]);
+            double[][] result = out.readRowMajor();
+
+            for (int i = 0; i < n; i++) {
+                SharedVector row = new SharedVector(a[i].clone(), memory.VectorOrientation.ROW_MAJOR);
+                row.vecMatMul(right);
+                for (int j = 0; j < m; j++) {
+                    assert(result[i][j] == row.get(j));
+                }
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> left.multiplyTileInto(new SharedMatrix(b), new SharedMatrix(n, m), 0, n, 10, m + 1));
+    }
+
+    @Test
+    void testReadRowMajorFromColumnMajorAcrossTiles() {
+        // wider and taller than one transpose tile, and not a multiple of it
+        int rows = 70, cols = 130;
+        double[][] data = new double[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                data[i][j] = i * 1000 + j;
+        SharedMatrix matrix = new SharedMatrix();
+        matrix.loadColumnMajor(data);
+        double[][] readData = matrix.readRowMajor();
+        assert(readData.length == rows && readData[0].length == cols);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                assert(readData[i][j] == data[i][j]);
+            }
+        }
+    }
+
+    @Test
+    void testTakeFromMovesWithoutCopy() {
+        SharedMatrix source = new SharedMatrix(new double[][]{{1, 2}, {3, 4}});
+        SharedVector firstRow = source.get(0);
+        SharedMatrix target = new SharedMatrix();
+        target.takeFrom(source);
+        assert(source.length() == 0);
+        assert(target.get(0) == firstRow);
+        assert(target.readRowMajor()[1][1] == 4);
+    }
+
+    @Test
+    void testTransposeViewAndToRowMajor() {
+        double[][] data = new double[70][130];
+        for (int i = 0; i < 70; i++)
+            for (int j = 0; j < 130; j++)
+                data[i][j] = i * 1000 + j;
+        SharedMatrix matrix = new SharedMatrix(data);
+        SharedVector firstRow = matrix.get(0);
+        matrix.transposeView();
+        // same vectors, now read as columns of the 130 x 70 transpose
+        assert(matrix.get(0) == firstRow);
+        assert(matrix.rows() == 130 && matrix.cols() == 70);
+        SharedMatrix rows = matrix.toRowMajor();
+        assert(rows.length() == 130);
+        assert(rows.toRowMajor() == rows);
+        double[][] read = rows.readRowMajor();
+        for (int i = 0; i < 130; i++)
+            for (int j = 0; j < 70; j++)
+                assert(read[i][j] == data[j][i]);
+    }
+
+    @Test
+    void testAddVectorsAcrossOrientations() {
+        int rows = 40, cols = 90;
+        double[][] a = new double[rows][cols];
+        double[][] b = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                a[i][j] = i + j;
+                b[i][j] = i * j;
+            }
+        }
+        SharedMatrix left = new SharedMatrix(a);
+        SharedMatrix right = new SharedMatrix();
+        right.loadColumnMajor(b);
+        left.addVectors(right, 0, 25);
+        left.addVectors(right, 25, rows);
+        double[][] sum = left.readRowMajor();
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                assert(sum[i][j] == a[i][j] + b[i][j]);
+
+        assertThrows(IllegalArgumentException.class, () -> left.addVectors(new SharedMatrix(new double[cols][rows]), 0, 1));
+    }
+}
@@ -1,8 +1,11 @@
+import memory.LockMode;
 import memory.SharedMatrix;
 import memory.SharedVector;
 import memory.VectorOrientation;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class SharedVectorTest {
     @Test
     void testAdd() {
@@ -80,4 +83,45 @@ public class SharedVectorTest {
         assert(v2.get(1) == 126); // Col 1: 2, 5, 8
         assert(v2.get(2) == 150); // Col 2: 3, 6, 9
     }
+
+    @Test
+    void testOptimisticLockMode() throws InterruptedException {
+        LockMode previous = SharedVector.getDefaultLockMode();
+        SharedVector.setDefaultLockMode(LockMode.OPTIMISTIC);
+        try {
+            SharedVector v1 = new SharedVector(new double[]{1, 2, 3}, VectorOrientation.ROW_MAJOR);
+            SharedVector v2 = new SharedVector(new double[]{4, 5, 6}, VectorOrientation.ROW_MAJOR);
+            assert(v1.dot(v2) == 32);
+            assert(v1.dot(v1) == 14);
+            v1.add(v1);
+            assert(v1.get(2) == 6);
+
+            // a row multiplied by the matrix it belongs to must not lock itself twice
+            SharedMatrix m = new SharedMatrix(new double[][]{{1, 2}, {3, 4}});
+            m.get(0).vecMatMul(m);
+            assert(m.get(0).get(0) == 7 && m.get(0).get(1) == 10);
+
+            // readers racing a writer only ever see whole vectors: all elements are equal
+            SharedVector shared = new SharedVector(new double[]{1, 1, 1, 1}, VectorOrientation.ROW_MAJOR);
+            SharedVector ones = new SharedVector(new double[]{1, 1, 1, 1}, VectorOrientation.ROW_MAJOR);
+            AtomicBoolean torn = new AtomicBoolean(false);
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) shared.add(ones);
+            });
+            Thread reader = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    double d = shared.dot(ones);
+                    if (d % 4 != 0) torn.set(true);
+                }
+            });
+            writer.start();
+            reader.start();
+            writer.join();
+            reader.join();
+            assert(!torn.get());
+            assert(shared.get(3) == 20001);
+        } finally {
+            SharedVector.setDefaultLockMode(previous);
+        }
+    }
 }
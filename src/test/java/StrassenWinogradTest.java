@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import memory.SharedMatrix;
+import memory.StrassenWinograd;
+
+public class StrassenWinogradTest {
+
+    private static double[] classical(double[] a, double[] b, int m, int k, int n) {
+        double[] c = new double[m * n];
+        for (int i = 0; i < m; i++)
+            for (int p = 0; p < k; p++)
+                for (int j = 0; j < n; j++)
+                    c[i * n + j] += a[i * k + p] * b[p * n + j];
+        return c;
+    }
+
+    private static double[] random(Random random, int size, boolean integers) {
+        double[] v = new double[size];
+        for (int i = 0; i < size; i++) v[i] = integers ? random.nextInt(7) - 3 : random.nextDouble() * 2 - 1;
+        return v;
+    }
+
+    @Test
+    void testIntegerProductsAreExact() {
+        // odd and unequal sides, three levels of recursion with a threshold of 16
+        Random random = new Random(1);
+        int m = 129, k = 130, n = 67;
+        double[] a = random(random, m * k, true);
+        double[] b = random(random, k * n, true);
+        double[] expected = classical(a, b, m, k, n);
+        double[] actual = StrassenWinograd.multiply(a, b, m, k, n, 16);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], 0.0);
+        }
+    }
+
+    @Test
+    void testAccuracyAgainstClassical() {
+        Random random = new Random(2);
+        for (int size : new int[]{64, 97, 256}) {
+            double[] a = random(random, size * size, false);
+            double[] b = random(random, size * size, false);
+            double[] expected = classical(a, b, size, size, size);
+            double[] actual = StrassenWinograd.multiply(a, b, size, size, size, 8);
+            // entries of the product are O(sqrt(size)); a few levels of Strassen lose a few more bits than that
+            double maxError = 0;
+            for (int i = 0; i < expected.length; i++) {
+                maxError = Math.max(maxError, Math.abs(expected[i] - actual[i]));
+            }
+            assertTrue(maxError < 1e-11 * size, size + ": max error " + maxError);
+        }
+    }
+
+    @Test
+    void testSplitRunsSevenTasksAndCombines() {
+        Random random = new Random(3);
+        int m = 41, k = 40, n = 39;
+        double[][] a = new double[m][k];
+        double[][] b = new double[k][n];
+        for (double[] row : a) for (int j = 0; j < k; j++) row[j] = random.nextInt(5) - 2;
+        for (double[] row : b) for (int j = 0; j < n; j++) row[j] = random.nextInt(5) - 2;
+
+        assertFalse(StrassenWinograd.applies(m, k, n, 0));
+        assertFalse(StrassenWinograd.applies(m, k, n, 40));
+        assertTrue(StrassenWinograd.applies(m, k, n, 39));
+
+        StrassenWinograd split = StrassenWinograd.split(new SharedMatrix(a), new SharedMatrix(b), 10);
+        java.util.List<Runnable> tasks = split.productTasks();
+        assertEquals(7, tasks.size());
+        // the products are independent, any order works
+        for (int i = tasks.size() - 1; i >= 0; i--) tasks.get(i).run();
+        SharedMatrix out = new SharedMatrix();
+        split.combineInto(out);
+
+        double[][] result = out.readRowMajor();
+        assertEquals(m, result.length);
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                double expected = 0;
+                for (int p = 0; p < k; p++) expected += a[i][p] * b[p][j];
+                assertEquals(expected, result[i][j], 0.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import spl.lae.TaskPartitioner;
+
+public class TaskPartitionerTest {
+
+    private final TaskPartitioner partitioner = new TaskPartitioner(4);
+
+    // ranges must cover [0, length) in order without gaps, sizes within one of each other
+    private static void assertBalancedCover(List<TaskPartitioner.Range> ranges, int length) {
+        int next = 0;
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (TaskPartitioner.Range r : ranges) {
+            assertEquals(next, r.from());
+            next = r.to();
+            min = Math.min(min, r.to() - r.from());
+            max = Math.max(max, r.to() - r.from());
+        }
+        assertEquals(length, next);
+        assertTrue(max - min <= 1);
+    }
+
+    @Test
+    void testManyCheapRowsAreGrouped() {
+        // 100000 x 4 ADD: one task per row would be 100k tasks
+        List<TaskPartitioner.Range> ranges = partitioner.rows(100_000, 400_000L);
+        assertEquals(4 * TaskPartitioner.CHUNKS_PER_THREAD, ranges.size());
+        assertBalancedCover(ranges, 100_000);
+    }
+
+    @Test
+    void testCheapOperationStillFeedsEveryWorker() {
+        assertEquals(2, partitioner.rows(2, 4).size());
+        assertEquals(4, partitioner.rows(1000, 1000).size());
+        assertEquals(0, partitioner.rows(0, 0).size());
+    }
+
+    @Test
+    void testColumnsAndTiles() {
+        assertBalancedCover(partitioner.columns(100_000, 1L << 30), 100_000);
+
+        // 4 x 100000 output of an expensive multiply: the rows alone cannot make 16 chunks
+        List<TaskPartitioner.Tile> tiles = partitioner.tiles(4, 100_000, 1L << 32);
+        assertEquals(16, tiles.size());
+        long cells = 0;
+        for (TaskPartitioner.Tile t : tiles) {
+            cells += (long) (t.rowTo() - t.rowFrom()) * (t.colTo() - t.colFrom());
+        }
+        assertEquals(400_000L, cells);
+
+        // a 2 x 2 output is too narrow to cut columns
+        assertEquals(2, partitioner.tiles(2, 2, 16).size());
+    }
+}
@@ -1,4 +1,5 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import scheduling.TiredExecutor;
+import scheduling.WorkerStats;
 
 public class TiredExecutorTest {
     private TiredExecutor executor;
@@ -46,6 +48,30 @@ public class TiredExecutorTest {
         assertEquals(1, counter.get(), "Counter should be incremented to 1");
     }
 
+    /**
+     * A task that throws an Error must not take its worker down: with one worker left dead the next
+     * submitAll and shutdown would wait for it forever.
+     */
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testWorkerSurvivesError() {
+        AtomicInteger counter = new AtomicInteger(0);
+        List<Runnable> failing = new ArrayList<>();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            failing.add(() -> {
+                throw new AssertionError("expected failure");
+            });
+        }
+        executor.submitAll(failing);
+
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 2 * NUM_THREADS; i++) {
+            tasks.add(counter::incrementAndGet);
+        }
+        executor.submitAll(tasks);
+        assertEquals(2 * NUM_THREADS, counter.get());
+    }
+
     /**
      * Test that submitAll blocks until ALL tasks are finished.
      * If submitAll returns before tasks are done, this test will fail.
@@ -113,4 +139,98 @@ public class TiredExecutorTest {
         assertTrue(report.contains("Fatigue"), "Report should contain fatigue stats");
         assertTrue(report.contains("Fairness"), "Report should contain fairness calculation");
     }
+
+    /**
+     * Test that submit returns before the task has run and that a full queue pushes back.
+     */
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testBoundedQueueBackpressure() throws InterruptedException {
+        TiredExecutor small = new TiredExecutor(1, 2);
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger(0);
+        try {
+            // occupies the only worker, the next two fill the queue
+            small.submit(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                counter.incrementAndGet();
+            });
+            assertTrue(small.trySubmit(counter::incrementAndGet));
+            assertTrue(small.trySubmit(counter::incrementAndGet));
+            assertEquals(2, small.getQueueDepth());
+            assertFalse(small.trySubmit(counter::incrementAndGet), "queue is full");
+            assertEquals(1, small.getRejectedSubmits());
+
+            release.countDown();
+            small.submitAll(new ArrayList<>());
+            assertEquals(3, counter.get());
+            assertEquals(0, small.getQueueDepth());
+            assertEquals(2, small.getMaxQueueDepth());
+            assertEquals(3, small.getDispatchedCount());
+            assertTrue(small.getTotalQueueWaitNanos() > 0);
+        } finally {
+            small.shutdown();
+        }
+    }
+
+    /**
+     * The fairness line is the spread between the most and least tired worker,
+     * it used to print the untouched MIN_VALUE - MAX_VALUE.
+     */
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testFairnessIsFatigueSpread() {
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            tasks.add(() -> {
+                long end = System.nanoTime() + 200_000;
+                while (System.nanoTime() < end) { }
+            });
+        }
+        executor.submitAll(tasks);
+
+        List<WorkerStats> stats = executor.getWorkerStats();
+        assertEquals(NUM_THREADS, stats.size());
+        double spread = WorkerStats.fatigueSpread(stats);
+        assertTrue(spread >= 0);
+        String report = executor.getWorkerReport();
+        double fairness = Double.parseDouble(report.substring(report.indexOf("Fairness=") + "Fairness=".length()).trim());
+        // 40 tasks of 0.2 ms, fatigue factors below 1.5
+        assertTrue(fairness >= 0 && fairness < 1.5 * 40 * 1e6, report);
+    }
+
+    /**
+     * A worker goes back into the idle heap keyed by its fatigue after the task it just ran:
+     * the worker that did the long task must not get the next one ahead of a fresh worker.
+     */
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testWorkerIsReinsertedWithUpdatedFatigue() throws InterruptedException {
+        TiredExecutor two = new TiredExecutor(2);
+        try {
+            List<String> ranOn = new ArrayList<>();
+            Runnable record = () -> {
+                synchronized (ranOn) {
+                    ranOn.add(Thread.currentThread().getName());
+                }
+            };
+            two.submitAll(List.of(() -> {
+                record.run();
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            two.submitAll(List.of(record));
+            assertEquals(2, ranOn.size());
+            assertFalse(ranOn.get(0).equals(ranOn.get(1)), ranOn.toString());
+        } finally {
+            two.shutdown();
+        }
+    }
 }
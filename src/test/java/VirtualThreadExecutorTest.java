@@ -0,0 +1,59 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.VirtualThreadExecutor;
+import spl.lae.ExecutionMode;
+import spl.lae.LinearAlgebraEngine;
+
+public class VirtualThreadExecutorTest {
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testBlockedTasksDoNotHoldWorkers() {
+        // 200 tasks that all wait for each other: only possible if none of them pins a thread of a small pool
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(2);
+        CountDownLatch all = new CountDownLatch(200);
+        AtomicInteger done = new AtomicInteger(0);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(() -> {
+                all.countDown();
+                try {
+                    all.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.incrementAndGet();
+            });
+        }
+        executor.submitAll(tasks);
+        assertEquals(200, done.get());
+        executor.shutdown();
+        assertThrows(IllegalStateException.class, () -> executor.submit(() -> {}));
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testEngineRunsOnVirtualThreads() {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(new VirtualThreadExecutor(2), ExecutionMode.PARALLEL_DAG);
+        ComputationNode a = new ComputationNode(new double[][]{{1, 2}, {3, 4}});
+        ComputationNode b = new ComputationNode(new double[][]{{5, 6}, {7, 8}});
+        ComputationNode sum = new ComputationNode(ComputationNodeType.ADD, new ArrayList<>(List.of(a, b)));
+        ComputationNode root = new ComputationNode(ComputationNodeType.TRANSPOSE, new ArrayList<>(List.of(sum)));
+        double[][] result = engine.run(root).getMatrix();
+        assertArrayEquals(new double[]{6, 10}, result[0]);
+        assertArrayEquals(new double[]{8, 12}, result[1]);
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.WorkStealingExecutor;
+import spl.lae.ExecutionMode;
+import spl.lae.LinearAlgebraEngine;
+
+public class WorkStealingExecutorTest {
+    private WorkStealingExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new WorkStealingExecutor(4);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testManySmallTasks() {
+        AtomicInteger counter = new AtomicInteger(0);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tasks.add(counter::incrementAndGet);
+        }
+        executor.submitAll(tasks);
+        assertEquals(10000, counter.get());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testTasksSubmittedByWorkersRun() {
+        // every task forks two children onto its own deque, idle workers have to steal them
+        AtomicInteger counter = new AtomicInteger(0);
+        List<Runnable> roots = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            roots.add(() -> fork(counter, 8));
+        }
+        executor.submitAll(roots);
+        assertEquals(8 * ((1 << 9) - 1), counter.get());
+    }
+
+    private void fork(AtomicInteger counter, int depth) {
+        counter.incrementAndGet();
+        if (depth > 0) {
+            executor.submit(() -> fork(counter, depth - 1));
+            executor.submit(() -> fork(counter, depth - 1));
+        }
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testFailingTaskDoesNotKillWorker() {
+        AtomicInteger counter = new AtomicInteger(0);
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> { throw new RuntimeException("expected failure"); });
+        for (int i = 0; i < 100; i++) {
+            tasks.add(counter::incrementAndGet);
+        }
+        executor.submitAll(tasks);
+        assertEquals(100, counter.get());
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void testRejectsAfterShutdown() throws InterruptedException {
+        executor.shutdown();
+        assertThrows(IllegalStateException.class, () -> executor.submit(() -> {}));
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testEngineRunsOnWorkStealing() throws InterruptedException {
+        WorkStealingExecutor scheduler = new WorkStealingExecutor(3);
+        try {
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(scheduler, ExecutionMode.PARALLEL_DAG);
+            ComputationNode a = new ComputationNode(new double[][]{{1, 2}, {3, 4}});
+            ComputationNode b = new ComputationNode(new double[][]{{5, 6}, {7, 8}});
+            ComputationNode product = new ComputationNode(ComputationNodeType.MULTIPLY, new ArrayList<>(List.of(a, b)));
+            ComputationNode root = new ComputationNode(ComputationNodeType.NEGATE, new ArrayList<>(List.of(product)));
+            double[][] result = engine.run(root).getMatrix();
+            assertArrayEquals(new double[]{-19, -22}, result[0]);
+            assertArrayEquals(new double[]{-43, -50}, result[1]);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}